@@ -0,0 +1,218 @@
+package co.sedai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.model.Config;
+
+/**
+ * Renders many maps in one JVM.
+ * <p>
+ * Jobs that read the same input file with the same parse settings (delimiter,
+ * header lines, coordinate columns) are grouped, the file is parsed once into a
+ * {@link PointCache} and every map of the group is rendered from it in
+ * parallel. Groups are processed one after another, so only one cache is held
+ * in memory at a time. With {@code memory.planner} on, each job of a group is
+ * planned for an equal share of the heap left after the group's cache. A job
+ * that fails (missing file, no valid data, output not writable) is reported in
+ * its {@link JobResult}; the other jobs carry on.
+ * <p>
+ * Run with {@code java -cp Sedai.jar co.sedai.BatchRunner manifest [threads]}.
+ * The manifest lists one configuration file (or classpath resource) per line;
+ * blank lines and lines starting with {@code #} are ignored and relative paths
+ * are resolved against the manifest's directory. The exit status is non-zero
+ * if any job failed.
+ */
+public final class BatchRunner {
+    static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+    /** One map to render. */
+    public record Job(String name, Config config) {
+    }
+
+    /**
+     * Outcome of one job.
+     *
+     * @param name   The job name.
+     * @param error  The failure, or {@code null} if the map was rendered.
+     * @param millis Wall-clock time of the job, including its share of parsing.
+     */
+    public record JobResult(String name, Exception error, long millis) {
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    /** Settings that determine which points are parsed from a file. */
+    private record Source(String filePath, String delimiter, int skipLines, int latColumn, int longColumn) {
+        static Source of(Config config) {
+            return new Source(config.filePath(), config.inputDelimiter(), config.inputSkipHeaderLines(),
+                    config.latColumn(), config.longColumn());
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * @param threads Number of maps rendered concurrently; 0 uses one per
+     *                available processor.
+     */
+    public BatchRunner(int threads) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Renders all jobs. Never throws for a failing job.
+     *
+     * @param jobs The jobs to run.
+     * @return One result per job, in the order of {@code jobs}.
+     */
+    public List<JobResult> run(List<Job> jobs) {
+        Map<Source, List<Integer>> bySource = new LinkedHashMap<>();
+        List<List<Integer>> groups = new ArrayList<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            Config config = jobs.get(i).config();
+            if (config.shardEnabled())
+                groups.add(List.of(i)); // Workers parse their own ranges.
+            else if (config.timeColumn() >= 0)
+                groups.add(List.of(i)); // The cache holds no time column.
+            else
+                bySource.computeIfAbsent(Source.of(config), key -> new ArrayList<>()).add(i);
+        }
+        groups.addAll(bySource.values());
+
+        JobResult[] results = new JobResult[jobs.size()];
+        // Groups run one after another, each within the heap free at the start.
+        long batchBudget = ExecutionPlanner.availableBytes();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (List<Integer> group : groups)
+                runGroup(jobs, group, results, executor, batchBudget);
+        } finally {
+            executor.shutdown();
+        }
+        return List.of(results);
+    }
+
+    private void runGroup(List<Job> jobs, List<Integer> group, JobResult[] results, ExecutorService executor,
+            long batchBudget) {
+        Config first = jobs.get(group.get(0)).config();
+        long loadStart = System.nanoTime();
+        PointCache points = null;
+        if (group.size() > 1) {
+            logger.info("Parsing {} once for {} maps", first.filePath(), group.size());
+            try {
+                points = PointCache.load(first);
+            } catch (IOException | RuntimeException e) {
+                long millis = (System.nanoTime() - loadStart) / 1_000_000;
+                for (int index : group)
+                    results[index] = new JobResult(jobs.get(index).name(), e, millis);
+                return;
+            }
+        }
+        long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+        // The jobs of a group run concurrently: each is planned for an equal share
+        // of the batch budget left after the points they share.
+        long cacheBytes = points == null ? 0 : points.footprintBytes();
+        long budgetShare = Math.max(1, (batchBudget - cacheBytes) / Math.min(threads, group.size()));
+
+        PointCache shared = points;
+        List<Future<JobResult>> futures = new ArrayList<>();
+        for (int index : group) {
+            Job job = jobs.get(index);
+            futures.add(executor.submit(() -> {
+                long start = System.nanoTime();
+                Exception error = null;
+                try {
+                    MapPlotter.plot(job.config(), job.name(), shared, budgetShare);
+                } catch (Exception e) {
+                    logger.error("Job {} failed: {}", job.name(), e.getMessage());
+                    error = e;
+                }
+                return new JobResult(job.name(), error, loadMillis + (System.nanoTime() - start) / 1_000_000);
+            }));
+        }
+        for (int i = 0; i < group.size(); i++) {
+            int index = group.get(i);
+            try {
+                results[index] = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results[index] = new JobResult(jobs.get(index).name(), e, 0);
+            } catch (ExecutionException e) {
+                results[index] = new JobResult(jobs.get(index).name(),
+                        e.getCause() instanceof Exception cause ? cause : e, 0);
+            }
+        }
+    }
+
+    /**
+     * Reads the configuration names listed in a manifest.
+     *
+     * @param manifest The manifest file.
+     * @return The entries, relative file paths resolved against the manifest's
+     *         directory.
+     * @throws IOException If the manifest cannot be read.
+     */
+    static List<String> readManifest(Path manifest) throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest)) {
+            String entry = line.trim();
+            if (entry.isEmpty() || entry.startsWith("#"))
+                continue;
+            Path resolved = manifest.toAbsolutePath().resolveSibling(entry);
+            entries.add(Files.isRegularFile(resolved) ? resolved.toString() : entry);
+        }
+        return entries;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: co.sedai.BatchRunner manifest [threads]");
+            System.exit(2);
+        }
+        List<String> entries;
+        try {
+            entries = readManifest(Path.of(args[0]));
+        } catch (IOException e) {
+            logger.error("FATAL: Error reading manifest '{}': {}", args[0], e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        List<JobResult> results = new ArrayList<>();
+        List<Job> jobs = new ArrayList<>();
+        for (String entry : entries) {
+            try {
+                jobs.add(new Job(entry, ConfigReader.load(entry)));
+            } catch (IOException | IllegalArgumentException e) {
+                logger.error("Job {} failed: invalid configuration: {}", entry, e.getMessage());
+                results.add(new JobResult(entry, e, 0));
+            }
+        }
+        results.addAll(new BatchRunner(args.length > 1 ? Integer.parseInt(args[1]) : 0).run(jobs));
+
+        long failed = results.stream().filter(result -> !result.succeeded()).count();
+        for (JobResult result : results) {
+            if (result.succeeded())
+                logger.info("OK     {} ({} ms)", result.name(), result.millis());
+            else
+                logger.error("FAILED {}: {}", result.name(), result.error().getMessage());
+        }
+        logger.info("Batch finished: {} of {} maps rendered", results.size() - failed, results.size());
+        if (failed > 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,101 @@
+package co.sedai;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import co.sedai.model.Bounds;
+
+/**
+ * Computes the {@link Bounds} of coordinates held in primitive arrays as a
+ * fork-join reduction across cores.
+ * <p>
+ * The leaf loops are deliberately plain: one array, one counted loop, one
+ * min and one max accumulator, no branches and no allocation. That is the
+ * shape the C2 compiler turns into SIMD min/max reductions. Latitudes and
+ * longitudes are reduced in separate loops so each loop streams a single
+ * array. Values are expected to be pre-validated (no NaN, within range), as
+ * they are in a {@link PointCache}.
+ */
+final class BoundsKernel {
+    /** Points per leaf task; large enough to amortize the task, small enough to balance. */
+    static final int LEAF_SIZE = 1 << 18;
+
+    private BoundsKernel() {
+    }
+
+    /**
+     * @param lats Latitudes, valid in {@code [0, size)}.
+     * @param lons Longitudes, valid in {@code [0, size)}.
+     * @param size Number of points.
+     * @return The bounds of the points, invalid (infinite extent) if
+     *         {@code size} is 0.
+     */
+    static Bounds reduce(double[] lats, double[] lons, int size) {
+        Bounds bounds;
+        if (size <= LEAF_SIZE) {
+            bounds = new Bounds();
+            reduceRange(lats, lons, 0, size, bounds);
+        } else {
+            ReduceTask task = new ReduceTask(lats, lons, 0, size);
+            ForkJoinPool.commonPool().invoke(task);
+            bounds = task.result;
+        }
+        bounds.pointCount = size;
+        return bounds;
+    }
+
+    /**
+     * Sequential kernel, folds {@code [from, to)} into {@code bounds} (the point
+     * count is left untouched).
+     */
+    static void reduceRange(double[] lats, double[] lons, int from, int to, Bounds bounds) {
+        double min = bounds.minLat;
+        double max = bounds.maxLat;
+        for (int i = from; i < to; i++) {
+            double v = lats[i];
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        bounds.minLat = min;
+        bounds.maxLat = max;
+
+        min = bounds.minLon;
+        max = bounds.maxLon;
+        for (int i = from; i < to; i++) {
+            double v = lons[i];
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        bounds.minLon = min;
+        bounds.maxLon = max;
+    }
+
+    private static final class ReduceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[] lats;
+        private final double[] lons;
+        private final int from;
+        private final int to;
+        final transient Bounds result = new Bounds();
+
+        ReduceTask(double[] lats, double[] lons, int from, int to) {
+            this.lats = lats;
+            this.lons = lons;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                reduceRange(lats, lons, from, to, result);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            ReduceTask left = new ReduceTask(lats, lons, from, mid);
+            ReduceTask right = new ReduceTask(lats, lons, mid, to);
+            invokeAll(left, right);
+            result.merge(left.result).merge(right.result);
+        }
+    }
+}
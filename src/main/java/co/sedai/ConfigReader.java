@@ -0,0 +1,277 @@
+package co.sedai;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+
+/**
+ * Builds and validates a {@link Config} from raw property values.
+ * <p>
+ * The values come from a lookup function, so the same parsing and validation
+ * is used whether the properties were read by Apache Commons Configuration
+ * ({@link Main}) or by the built-in {@link #load(String)} used by the lean
+ * startup path ({@link LeanMain}), which only needs {@code java.util}.
+ */
+final class ConfigReader {
+    private final Function<String, String> lookup;
+
+    private ConfigReader(Function<String, String> lookup) {
+        this.lookup = lookup;
+    }
+
+    /**
+     * Reads a properties file with {@link Properties} instead of Commons
+     * Configuration. {@link Properties} already drops the unescaped whitespace
+     * before a value; only trailing whitespace is stripped here, so an escaped
+     * leading space (a blank first density level, {@code \ .:o}) survives.
+     *
+     * @param configurationName A file path or, if no such file exists, a
+     *                          classpath resource name.
+     * @return The validated configuration.
+     * @throws IOException              If the file cannot be found or read.
+     * @throws IllegalArgumentException If properties are missing or invalid.
+     */
+    static Config load(String configurationName) throws IOException {
+        Properties properties = new Properties();
+        Path path = Path.of(configurationName);
+        try (InputStream in = Files.isRegularFile(path) ? new FileInputStream(path.toFile())
+                : ConfigReader.class.getClassLoader().getResourceAsStream(configurationName)) {
+            if (in == null)
+                throw new IOException("Cannot locate configuration '" + configurationName + "'");
+            properties.load(in);
+        }
+        return read(key -> {
+            String value = properties.getProperty(key);
+            return value == null ? null : value.stripTrailing();
+        });
+    }
+
+    /**
+     * @param lookup Returns the (trimmed) value of a property, or {@code null} if
+     *               it is not set.
+     * @return The validated configuration.
+     * @throws IllegalArgumentException If properties are missing or invalid.
+     */
+    static Config read(Function<String, String> lookup) {
+        return new ConfigReader(lookup).read();
+    }
+
+    private Config read() {
+        String filePath = lookup.apply("input.file_path");
+        if (filePath == null || filePath.trim().isEmpty())
+            throw new IllegalArgumentException("Missing required configuration property: input.file_path");
+        int width = requiredInt("map.width");
+        int height = requiredInt("map.height");
+        String delimiter = required("input.delimiter");
+        int skipLines = requiredInt("input.skip_header_lines");
+        String densityCharsStr = required("render.density_chars");
+        int latColumn = requiredInt("input.lat_column");
+        int longColumn = requiredInt("input.long_column");
+        boolean htmlEnabled = bool("render.html_enabled", false);
+        String htmlFilePath = string("render.file_path", "./map.html");
+        long errorCount = Long.parseLong(string("log.error_count", "10"));
+        Bounds fixedBounds = null;
+        if (bool("bounds.use_fixed", false)) {
+            fixedBounds = new Bounds();
+            fixedBounds.minLat = requiredDouble("bounds.fixed.min_lat");
+            fixedBounds.maxLat = requiredDouble("bounds.fixed.max_lat");
+            fixedBounds.minLon = requiredDouble("bounds.fixed.min_lon");
+            fixedBounds.maxLon = requiredDouble("bounds.fixed.max_lon");
+        }
+        boolean shardEnabled = bool("shard.enabled", false);
+        List<String> shardWorkers = splitList(string("shard.workers", ""));
+        int shardLocalWorkers = integer("shard.local_workers", 0);
+        List<String> shardInputFiles = splitList(string("shard.input_files", ""));
+        boolean pipelineEnabled = bool("pipeline.enabled", false);
+        int pipelineThreads = integer("pipeline.parser_threads", 0);
+        boolean pipelineVirtualThreads = bool("pipeline.virtual_threads", true);
+        int pipelineBlockKb = integer("pipeline.block_size_kb", 1024);
+        int pipelineQueueDepth = integer("pipeline.queue_depth", 8);
+        boolean cachePoints = bool("input.cache_points", false);
+        double boundsTrimPercent = Double.parseDouble(string("bounds.trim_percent", "0"));
+        boolean rasterEnabled = bool("render.raster_enabled", false);
+        String rasterFilePath = string("render.raster_file_path", "./map.png");
+        int rasterCellSize = integer("render.raster_cell_size", 1);
+        String rasterPalette = string("render.raster_palette", "gray").toLowerCase();
+        int timeColumn = integer("time.column", -1);
+        long timeWindowSeconds = Long.parseLong(string("time.window_seconds", "3600"));
+        String timeFormat = string("time.format", "epoch_seconds").toLowerCase();
+        String timeFrameOutput = string("time.frame_output", "html").toLowerCase();
+        int timeMaxWindows = integer("time.max_windows", 1000);
+        String smoothKernel = string("smooth.kernel", "none").toLowerCase();
+        double smoothBandwidth = Double.parseDouble(string("smooth.bandwidth", "1.5"));
+        boolean memoryPlanner = bool("memory.planner", false);
+        long memoryBudgetMb = Long.parseLong(string("memory.budget_mb", "0"));
+        boolean tilesEnabled = bool("tiles.enabled", false);
+        String tilesDirectory = string("tiles.directory", "./tiles");
+        int tilesMaxZoom = integer("tiles.max_zoom", 6);
+        int tileSize = integer("tiles.size", 256);
+
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Map width and height must be >0.");
+        if ((long) width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Map width x height must not exceed " + Integer.MAX_VALUE + " cells.");
+        if (skipLines < 0)
+            throw new IllegalArgumentException("input.skip_header_lines cannot be negative.");
+        if (densityCharsStr.length() < 3)
+            throw new IllegalArgumentException("render.density_chars must contain at least 2 characters.");
+        if (latColumn < 0 || longColumn < 0 || latColumn == longColumn) {
+            throw new IllegalArgumentException(
+                    "input.lat_column and input.long_column must be non-negative and different.");
+        }
+        if (fixedBounds != null && (fixedBounds.minLat >= fixedBounds.maxLat || fixedBounds.minLon >= fixedBounds.maxLon))
+            throw new IllegalArgumentException("bounds.fixed min values must be less than the max values.");
+        if (shardLocalWorkers < 0)
+            throw new IllegalArgumentException("shard.local_workers cannot be negative.");
+        if (boundsTrimPercent < 0 || boundsTrimPercent >= 50)
+            throw new IllegalArgumentException("bounds.trim_percent must be in [0, 50).");
+        if (pipelineThreads < 0 || pipelineBlockKb <= 0 || pipelineQueueDepth <= 0)
+            throw new IllegalArgumentException(
+                    "pipeline.parser_threads cannot be negative, pipeline.block_size_kb and pipeline.queue_depth must be >0.");
+        if (rasterCellSize <= 0 || (long) width * rasterCellSize > Integer.MAX_VALUE / 3
+                || (long) height * rasterCellSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("render.raster_cell_size must be >0 and keep the image size in range.");
+        if (!rasterPalette.equals("gray") && !rasterPalette.equals("heat"))
+            throw new IllegalArgumentException("render.raster_palette must be gray or heat.");
+        if (rasterEnabled) {
+            String extension = rasterFilePath.toLowerCase();
+            if (!extension.endsWith(".png") && !extension.endsWith(".pgm") && !extension.endsWith(".ppm"))
+                throw new IllegalArgumentException("render.raster_file_path must end with .png, .pgm or .ppm.");
+            if (extension.endsWith(".pgm") && rasterPalette.equals("heat"))
+                throw new IllegalArgumentException("The heat palette needs a .png or .ppm raster file.");
+        }
+        if (timeColumn >= 0) {
+            if (timeColumn == latColumn || timeColumn == longColumn)
+                throw new IllegalArgumentException("time.column must differ from the coordinate columns.");
+            if (timeWindowSeconds <= 0 || timeMaxWindows <= 0)
+                throw new IllegalArgumentException("time.window_seconds and time.max_windows must be >0.");
+            if (timeWindowSeconds > Long.MAX_VALUE / 1000)
+                throw new IllegalArgumentException("time.window_seconds must be at most " + Long.MAX_VALUE / 1000 + ".");
+            if (!List.of("epoch_seconds", "epoch_millis", "iso").contains(timeFormat))
+                throw new IllegalArgumentException("time.format must be epoch_seconds, epoch_millis or iso.");
+            if (!timeFrameOutput.equals("html") && !timeFrameOutput.equals("files"))
+                throw new IllegalArgumentException("time.frame_output must be html or files.");
+            // The windowed scan reads the time column itself, sequentially.
+            if (shardEnabled)
+                throw new IllegalArgumentException("time.column cannot be combined with shard.enabled.");
+            if (cachePoints)
+                throw new IllegalArgumentException("time.column cannot be combined with input.cache_points.");
+        }
+        if (!List.of("none", "gaussian", "epanechnikov").contains(smoothKernel))
+            throw new IllegalArgumentException("smooth.kernel must be none, gaussian or epanechnikov.");
+        if (!(smoothBandwidth > 0 && smoothBandwidth <= Math.max(width, height)))
+            throw new IllegalArgumentException("smooth.bandwidth must be >0 and at most the map size.");
+        if (memoryBudgetMb < 0)
+            throw new IllegalArgumentException("memory.budget_mb cannot be negative.");
+        if (tileSize < 16 || tileSize > 4096 || Integer.bitCount(tileSize) != 1)
+            throw new IllegalArgumentException("tiles.size must be a power of two from 16 to 4096.");
+        if (tilesMaxZoom < 0 || tilesMaxZoom + Integer.numberOfTrailingZeros(tileSize) > RenderMapTiles.MAX_CELL_BITS)
+            throw new IllegalArgumentException("tiles.max_zoom must be >=0 and at most "
+                    + (RenderMapTiles.MAX_CELL_BITS - Integer.numberOfTrailingZeros(tileSize)) + " for this tile size.");
+        if (tilesEnabled && timeColumn >= 0)
+            throw new IllegalArgumentException("tiles.enabled cannot be combined with time.column.");
+        if (tilesEnabled && shardEnabled)
+            throw new IllegalArgumentException("tiles.enabled cannot be combined with shard.enabled.");
+        if (tilesEnabled && !smoothKernel.equals("none"))
+            throw new IllegalArgumentException("tiles.enabled cannot be combined with smooth.kernel.");
+        return Config.builder(filePath.trim())
+                .mapWidth(width).mapHeight(height).inputDelimiter(delimiter).inputSkipHeaderLines(skipLines)
+                .renderDensityChars(densityCharsStr.toCharArray())
+                .latColumn(latColumn).longColumn(longColumn)
+                .htmlEnabled(htmlEnabled).htmlFilePath(htmlFilePath).errorCount(errorCount)
+                .fixedBounds(fixedBounds).shardEnabled(shardEnabled).shardWorkers(shardWorkers)
+                .shardLocalWorkers(shardLocalWorkers)
+                .shardInputFiles(shardInputFiles.isEmpty() ? null : shardInputFiles)
+                .pipelineEnabled(pipelineEnabled).pipelineThreads(pipelineThreads)
+                .pipelineVirtualThreads(pipelineVirtualThreads).pipelineBlockSize(pipelineBlockKb * 1024)
+                .pipelineQueueDepth(pipelineQueueDepth)
+                .cachePoints(cachePoints).boundsTrimPercent(boundsTrimPercent)
+                .rasterEnabled(rasterEnabled).rasterFilePath(rasterFilePath).rasterCellSize(rasterCellSize)
+                .rasterPalette(rasterPalette)
+                .timeColumn(timeColumn).timeWindowSeconds(timeWindowSeconds).timeFormat(timeFormat)
+                .timeFrameOutput(timeFrameOutput).timeMaxWindows(timeMaxWindows)
+                .smoothKernel(smoothKernel).smoothBandwidth(smoothBandwidth)
+                .memoryPlanner(memoryPlanner).memoryBudgetMb(memoryBudgetMb)
+                .pipelineExplicit(isSet("pipeline.enabled")).cachePointsExplicit(isSet("input.cache_points"))
+                .tilesEnabled(tilesEnabled).tilesDirectory(tilesDirectory).tilesMaxZoom(tilesMaxZoom)
+                .tileSize(tileSize)
+                .build();
+    }
+
+    private String string(String key, String defaultValue) {
+        String value = lookup.apply(key);
+        return value == null ? defaultValue : value;
+    }
+
+    private boolean isSet(String key) {
+        String value = lookup.apply(key);
+        return value != null && !value.isEmpty();
+    }
+
+    private String required(String key) {
+        String value = lookup.apply(key);
+        if (value == null)
+            throw new IllegalArgumentException("Missing required configuration property: " + key);
+        return value;
+    }
+
+    private int requiredInt(String key) {
+        return parseInt(key, required(key));
+    }
+
+    private int integer(String key, int defaultValue) {
+        String value = lookup.apply(key);
+        return value == null || value.isEmpty() ? defaultValue : parseInt(key, value);
+    }
+
+    private double requiredDouble(String key) {
+        try {
+            return Double.parseDouble(required(key));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + lookup.apply(key));
+        }
+    }
+
+    private static int parseInt(String key, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid integer for " + key + ": " + value);
+        }
+    }
+
+    /** Accepts the same spellings as Commons Configuration. */
+    private boolean bool(String key, boolean defaultValue) {
+        String value = lookup.apply(key);
+        if (value == null || value.isEmpty())
+            return defaultValue;
+        switch (value.toLowerCase()) {
+            case "true", "yes", "on", "y", "t":
+                return true;
+            case "false", "no", "off", "n", "f":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid boolean for " + key + ": " + value);
+        }
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        if (value == null)
+            return items;
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty())
+                items.add(item.trim());
+        }
+        return items;
+    }
+}
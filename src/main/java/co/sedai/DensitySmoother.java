@@ -0,0 +1,140 @@
+package co.sedai;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import co.sedai.model.Config;
+
+/**
+ * Kernel density smoothing of a binned grid, run between grid population and
+ * rendering.
+ * <p>
+ * The 2D kernel is the product of two 1D kernels, so it is applied as a
+ * horizontal pass (row bands in parallel, into a {@code double} scratch grid)
+ * followed by a vertical pass (column bands in parallel, back into the grid).
+ * The cost is O(cells x kernel width) instead of O(points x kernel area) for
+ * splatting every point. The horizontal pass skips empty cells, so sparse
+ * rural rows are nearly free. The scratch grid is kept between calls, e.g.
+ * for the frames of a time-windowed map.
+ * <p>
+ * {@link Config#smoothBandwidth()} is in cells: the standard deviation of the
+ * {@code gaussian} kernel (truncated at three standard deviations) or the
+ * half-width of the {@code epanechnikov} kernel. Cells beyond the grid edge
+ * count as empty. Smoothed values are rounded to counts; a cell that held
+ * points before smoothing keeps a count of at least 1 so isolated points stay
+ * visible, while the faint tail the kernel spreads around them rounds to 0.
+ */
+public final class DensitySmoother {
+    /** Rows (or columns) per parallel band, enough to amortize task overhead. */
+    private static final int BAND_SIZE = 64;
+
+    private final double[] weights;
+    private final int radius;
+    private double[][] scratch;
+
+    public DensitySmoother(Config config) {
+        this.weights = weights(config.smoothKernel(), config.smoothBandwidth());
+        this.radius = weights.length / 2;
+    }
+
+    /**
+     * @param kernel    {@code gaussian} or {@code epanechnikov}.
+     * @param bandwidth Kernel bandwidth in cells.
+     * @return The normalized 1D kernel, centred on index {@code length / 2}.
+     */
+    static double[] weights(String kernel, double bandwidth) {
+        boolean gaussian = kernel.equals("gaussian");
+        int radius = gaussian ? (int) Math.ceil(3 * bandwidth) : (int) Math.floor(bandwidth);
+        double[] weights = new double[2 * radius + 1];
+        double sum = 0;
+        for (int i = -radius; i <= radius; i++) {
+            double u = i / bandwidth;
+            double weight = gaussian ? Math.exp(-0.5 * u * u) : Math.max(0.0, 1 - u * u);
+            weights[i + radius] = weight;
+            sum += weight;
+        }
+        if (sum == 0) {
+            // Bandwidth below one cell: nothing to spread.
+            weights[radius] = 1;
+            sum = 1;
+        }
+        for (int i = 0; i < weights.length; i++)
+            weights[i] /= sum;
+        return weights;
+    }
+
+    /**
+     * Smooths the grid in place. An all-zero grid is left unchanged.
+     *
+     * @param grid The grid to smooth, {@code long[height][width]}.
+     * @return {@code grid}, for chaining.
+     */
+    public long[][] smooth(long[][] grid) {
+        int height = grid.length;
+        int width = height == 0 ? 0 : grid[0].length;
+        if (width == 0 || radius == 0)
+            return grid;
+        if (scratch == null || scratch.length != height || scratch[0].length != width)
+            scratch = new double[height][width];
+        double[][] rows = scratch;
+
+        IntStream.range(0, (height + BAND_SIZE - 1) / BAND_SIZE).parallel().forEach(band -> {
+            int to = Math.min(height, (band + 1) * BAND_SIZE);
+            for (int y = band * BAND_SIZE; y < to; y++)
+                smoothRow(grid[y], rows[y]);
+        });
+        IntStream.range(0, (width + BAND_SIZE - 1) / BAND_SIZE).parallel().forEach(band -> {
+            int from = band * BAND_SIZE;
+            smoothColumns(rows, grid, from, Math.min(width, from + BAND_SIZE));
+        });
+        return grid;
+    }
+
+    /** Scatters every non-empty cell of {@code row} over its neighbours in {@code out}. */
+    private void smoothRow(long[] row, double[] out) {
+        int width = row.length;
+        Arrays.fill(out, 0.0);
+        for (int x = 0; x < width; x++) {
+            long count = row[x];
+            if (count == 0)
+                continue;
+            int from = Math.max(0, x - radius);
+            int to = Math.min(width - 1, x + radius);
+            for (int target = from; target <= to; target++)
+                out[target] += count * weights[target - x + radius];
+        }
+    }
+
+    /**
+     * Gathers the vertical neighbours of columns {@code [from, to)} row by row,
+     * so the inner loop runs over contiguous memory.
+     */
+    private void smoothColumns(double[][] rows, long[][] grid, int from, int to) {
+        int height = rows.length;
+        double[] sum = new double[to - from];
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(sum, 0.0);
+            int first = Math.max(0, y - radius);
+            int last = Math.min(height - 1, y + radius);
+            for (int source = first; source <= last; source++) {
+                double weight = weights[source - y + radius];
+                double[] row = rows[source];
+                for (int x = from; x < to; x++)
+                    sum[x - from] += row[x] * weight;
+            }
+            // The grid row still holds the unsmoothed counts until it is overwritten here.
+            long[] out = grid[y];
+            for (int x = from; x < to; x++)
+                out[x] = toCount(sum[x - from], out[x] > 0);
+        }
+    }
+
+    /**
+     * @param value    The smoothed density of a cell.
+     * @param occupied Whether the cell held points before smoothing.
+     */
+    static long toCount(double value, boolean occupied) {
+        long count = Math.round(value);
+        return occupied ? Math.max(1, count) : count;
+    }
+}
@@ -0,0 +1,239 @@
+package co.sedai;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.model.Config;
+
+/**
+ * Chooses how to execute a run within a memory budget, before anything large
+ * is allocated.
+ * <p>
+ * The planner estimates the number of rows from the file size and the line
+ * length in the first megabytes of the file, then picks, in this order:
+ * <ol>
+ * <li>whether the grid, smoothing scratch and text rendering fit at all; if
+ * not the run fails fast instead of running out of memory halfway;</li>
+ * <li>whether the points can be cached in memory ({@link PointCache}) so the
+ * file is parsed once, or must be read a second time;</li>
+ * <li>the number of parser threads for the pipelined scan, each with its own
+ * partial grid, narrowing those grids to {@code int} counters when
+ * {@code long} ones would cost threads;</li>
+ * <li>for time windows, how many window grids fit.</li>
+ * </ol>
+ * Tile output does not allocate the map grid; it needs memory per point for
+ * the cell keys instead, and caches the points when that fits as well.
+ * <p>
+ * Settings the user gave explicitly are limits: {@code pipeline.parser_threads}
+ * caps the threads, and an explicit {@code pipeline.enabled = false} or
+ * {@code input.cache_points = false} is never turned on. The planner may still
+ * turn an explicit {@code true} off to stay within the budget.
+ * The budget is {@code memory.budget_mb}, capped by the heap that is actually
+ * free (the JVM sizes its heap from the container limit), or by the share of
+ * it a {@link BatchRunner} job gets when several jobs run at the same time.
+ * A job given points that were already cached only needs the memory to bin
+ * and render them; the cache itself is charged to the batch.
+ */
+final class ExecutionPlanner {
+    static final Logger logger = LoggerFactory.getLogger(ExecutionPlanner.class);
+
+    static final int SAMPLE_BYTES = 4 << 20;
+    /** Fraction of the budget left for everything the planner does not model. */
+    private static final double HEADROOM = 0.1;
+    /** Peak bytes per cached point while loading: growing per-worker arrays plus the merged copy. */
+    private static final long CACHE_LOAD_BYTES_PER_POINT = 40;
+    private static final long CACHE_BYTES_PER_POINT = 16;
+    /** Cell key of every point, its sink's growth slack and the counted cells. */
+    private static final long TILE_BYTES_PER_POINT = 32;
+    /** Rows are estimated from a sample; plan for this many more. */
+    private static final double ROW_MARGIN = 1.25;
+
+    /**
+     * The chosen strategy and the figures it was based on.
+     *
+     * @param budgetBytes    Usable memory.
+     * @param fileBytes      Size of the input file.
+     * @param estimatedRows  Estimated number of data rows.
+     * @param cachePoints    Parse once into memory instead of scanning twice.
+     * @param threads        Parser threads; 1 means a sequential scan.
+     * @param narrowCounters Per-thread grids use {@code int} counters.
+     * @param maxWindows     Time windows that fit, if time windows are used.
+     * @param peakBytes      Estimated peak memory of the plan.
+     */
+    record ExecutionPlan(long budgetBytes, long fileBytes, long estimatedRows, boolean cachePoints,
+            int threads, boolean narrowCounters, int maxWindows, long peakBytes) {
+
+        Config apply(Config config) {
+            return config.withPlan(threads > 1, threads, cachePoints, narrowCounters, maxWindows);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s, %d parser thread(s)%s, ~%,d rows in %,d MB, peak ~%,d MB of %,d MB budget",
+                    cachePoints ? "points cached in memory" : "second scan", threads,
+                    narrowCounters ? " with int counters" : "", estimatedRows, fileBytes >> 20, peakBytes >> 20,
+                    budgetBytes >> 20);
+        }
+    }
+
+    private ExecutionPlanner() {
+    }
+
+    /**
+     * Plans a run with the memory and processors available to this JVM.
+     *
+     * @throws IOException              If the input file cannot be sampled.
+     * @throws IllegalArgumentException If the grid and rendering alone exceed
+     *                                  the budget.
+     */
+    static ExecutionPlan plan(Config config) throws IOException {
+        return plan(config, 0, null);
+    }
+
+    /**
+     * Plans one of several runs sharing this JVM.
+     *
+     * @param shareBytes Memory this run may use, or 0 for all that is free.
+     * @param points     Points already cached for this run, or {@code null}.
+     * @throws IOException              If the input file cannot be sampled.
+     * @throws IllegalArgumentException If the run does not fit the budget.
+     */
+    static ExecutionPlan plan(Config config, long shareBytes, PointCache points) throws IOException {
+        long budget = availableBytes();
+        if (shareBytes > 0)
+            budget = Math.min(budget, shareBytes);
+        if (config.memoryBudgetMb() > 0)
+            budget = Math.min(budget, config.memoryBudgetMb() << 20);
+        return plan(config, budget, Runtime.getRuntime().availableProcessors(), points);
+    }
+
+    /** @return The heap this JVM can still allocate. */
+    static long availableBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    static ExecutionPlan plan(Config config, long budgetBytes, int processors) throws IOException {
+        return plan(config, budgetBytes, processors, null);
+    }
+
+    static ExecutionPlan plan(Config config, long budgetBytes, int processors, PointCache points)
+            throws IOException {
+        long budget = (long) (budgetBytes * (1 - HEADROOM));
+        Path path = Path.of(config.filePath());
+        long fileBytes = Files.size(path);
+        long rows = points != null ? points.size() : estimateRows(path, fileBytes);
+        long cells = (long) config.mapWidth() * config.mapHeight();
+        boolean mayCache = !config.cachePointsExplicit() || config.cachePoints();
+        boolean mayPipeline = !config.pipelineExplicit() || config.pipelineEnabled();
+        int maxThreads = !mayPipeline ? 1
+                : Math.max(1, config.pipelineThreads() > 0 ? config.pipelineThreads() : processors);
+        long blocks = (long) (config.pipelineQueueDepth() + maxThreads + 2) * config.pipelineBlockSize();
+        long plannedRows = points != null ? rows : (long) (rows * ROW_MARGIN);
+        boolean twoPasses = config.fixedBounds() == null;
+
+        if (config.tilesEnabled()) {
+            // Scratch tile grids of the fork-join workers.
+            long keys = plannedRows * TILE_BYTES_PER_POINT + (long) processors * config.tileSize()
+                    * config.tileSize() * Long.BYTES;
+            long scan = points != null ? 0 : blocks;
+            if (keys + scan > budget)
+                throw new IllegalArgumentException(String.format(
+                        "Tiling ~%,d rows needs ~%,d MB, more than the %,d MB budget.", rows, (keys + scan) >> 20,
+                        budget >> 20));
+            if (points != null)
+                return new ExecutionPlan(budgetBytes, fileBytes, rows, true, 1, false, config.timeMaxWindows(), keys);
+            long cacheLoad = plannedRows * CACHE_LOAD_BYTES_PER_POINT + blocks;
+            long cacheRun = plannedRows * CACHE_BYTES_PER_POINT + keys;
+            boolean cache = mayCache && twoPasses && plannedRows < Integer.MAX_VALUE - 8 && Math.max(cacheLoad, cacheRun) <= budget;
+            return new ExecutionPlan(budgetBytes, fileBytes, rows, cache, maxThreads, false,
+                    config.timeMaxWindows(), cache ? Math.max(cacheLoad, cacheRun) : keys + blocks);
+        }
+
+        long grid = cells * Long.BYTES;
+        long fixed = grid;
+        if (!config.smoothKernel().equals("none"))
+            fixed += cells * Double.BYTES;
+        if (!config.rasterEnabled() || config.htmlEnabled())
+            // StringBuilder, its String and, for HTML, the escaped copies.
+            fixed += cells * (config.htmlEnabled() ? 12 : 4);
+        if (fixed > budget)
+            throw new IllegalArgumentException(String.format(
+                    "A %dx%d map needs ~%,d MB for the grid and rendering, more than the %,d MB budget; "
+                            + "reduce map.width/map.height%s.",
+                    config.mapWidth(), config.mapHeight(), fixed >> 20, budget >> 20,
+                    config.rasterEnabled() ? "" : " or use raster output"));
+
+        if (config.timeColumn() >= 0) {
+            // The bounds pass may be pipelined; the windowed scan is sequential and
+            // needs one grid per window on top of the fixed cost. Frames are
+            // rendered and written one at a time, so the text of a single frame in
+            // the fixed cost covers them all.
+            int windows = (int) Math.max(0, Math.min(config.timeMaxWindows(), (budget - fixed) / grid));
+            if (windows < 1)
+                throw new IllegalArgumentException("Not enough memory for a single time window grid.");
+            return new ExecutionPlan(budgetBytes, fileBytes, rows, false, maxThreads, false, windows,
+                    Math.max(blocks, fixed + (long) windows * grid));
+        }
+
+        if (points != null)
+            return new ExecutionPlan(budgetBytes, fileBytes, rows, true, 1, false, config.timeMaxWindows(), fixed);
+
+        long cacheLoad = plannedRows * CACHE_LOAD_BYTES_PER_POINT + blocks;
+        long cacheRun = plannedRows * CACHE_BYTES_PER_POINT + fixed;
+        if (mayCache && twoPasses && plannedRows < Integer.MAX_VALUE - 8 && Math.max(cacheLoad, cacheRun) <= budget)
+            return new ExecutionPlan(budgetBytes, fileBytes, rows, true, maxThreads, false,
+                    config.timeMaxWindows(), Math.max(cacheLoad, cacheRun));
+
+        // Second scan: each extra parser thread needs a partial grid and a block.
+        long wide = cells * Long.BYTES;
+        long narrow = cells * Integer.BYTES;
+        int wideThreads = threadsThatFit(budget - fixed - blocks, wide, maxThreads, true);
+        int narrowThreads = threadsThatFit(budget - fixed - blocks, narrow, maxThreads, false);
+        if (wideThreads >= maxThreads || wideThreads >= narrowThreads || narrowThreads < 2)
+            return new ExecutionPlan(budgetBytes, fileBytes, rows, false, wideThreads, false,
+                    config.timeMaxWindows(), fixed + (wideThreads > 1 ? blocks + (wideThreads - 1) * wide : 0));
+        return new ExecutionPlan(budgetBytes, fileBytes, rows, false, narrowThreads, true,
+                config.timeMaxWindows(), fixed + blocks + narrowThreads * narrow);
+    }
+
+    /**
+     * @param firstIsFinal Whether the first thread's partial grid becomes the
+     *                     final grid (wide counters) or all partial grids come
+     *                     on top of it (narrow counters).
+     */
+    private static int threadsThatFit(long available, long perThread, int maxThreads, boolean firstIsFinal) {
+        if (available < 0)
+            return 1;
+        long threads = available / perThread + (firstIsFinal ? 1 : 0);
+        return (int) Math.max(1, Math.min(maxThreads, threads));
+    }
+
+    /**
+     * Estimates the number of lines from the average line length in the first
+     * {@value #SAMPLE_BYTES} bytes.
+     */
+    static long estimateRows(Path path, long fileBytes) throws IOException {
+        byte[] sample = new byte[(int) Math.min(SAMPLE_BYTES, fileBytes)];
+        int read = 0;
+        try (InputStream in = Files.newInputStream(path)) {
+            int n;
+            while (read < sample.length && (n = in.read(sample, read, sample.length - read)) > 0)
+                read += n;
+        }
+        long lines = 0;
+        for (int i = 0; i < read; i++)
+            if (sample[i] == '\n')
+                lines++;
+        if (read == fileBytes)
+            return lines + (read > 0 && sample[read - 1] != '\n' ? 1 : 0);
+        if (lines == 0)
+            return 1;
+        return (long) Math.ceil((double) fileBytes * lines / read);
+    }
+}
@@ -1,13 +1,12 @@
 package co.sedai;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import co.sedai.model.Bounds;
 import co.sedai.model.Config;
+import co.sedai.model.QuantileSketch;
 
 /**
  * Utility class to find the geographical bounds (min/max latitude and
@@ -16,89 +15,163 @@ import co.sedai.model.Config;
  */
 public class GetDatBounds {
     private Bounds bounds = new Bounds();
+    private QuantileSketch latSketch;
+    private QuantileSketch lonSketch;
     private static final Logger logger = LoggerFactory.getLogger(GetDatBounds.class);
 
     /**
      * Reads the input file according to the configuration and determines the
      * min/msx latitude and longitude of the valid data points.
+     * <p>
+     * If {@link Config#boundsTrimPercent()} is set, the latitudes and longitudes
+     * are also fed into {@link QuantileSketch}es and the bounds are narrowed to
+     * the configured percentiles, so a few stray points (e.g. 0,0 rows) do not
+     * stretch the map.
      *
      * @param config The application configuration file
      * @return A Bounds object containing the calculated min/max lat/lon and point
      *         count.
-     * @throws IOException If an error occurs reading the input file.
+     * @throws IOException If an error occurs reading the input file or it
+     *                     contains no valid coordinates.
      */
 
     public Bounds findDataBounds(Config config) throws IOException {
-        long lineNum = 0;
-        long errorCount = 0;
-        String delimiter = config.inputDelimiter();
-        long loggingErrorCount=config.errorCount();
-        if (loggingErrorCount == -1 ) { loggingErrorCount = Long.MAX_VALUE;}
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(config.filePath()))) {
-            String line;
-            for (int i = 0; i < config.inputSkipHeaderLines() && (line = reader.readLine()) != null; i++) {
-                lineNum++;
+        boolean trim = config.boundsTrimPercent() > 0;
+        if (config.pipelineEnabled()) {
+            for (BoundsSink sink : new PointPipeline(config, "Pass 1", "Skipping out of range coord")
+                    .run(config.filePath(), () -> new BoundsSink(trim))) {
+                bounds.merge(sink.bounds);
+                if (trim) {
+                    latSketch = latSketch == null ? sink.latSketch : latSketch.merge(sink.latSketch);
+                    lonSketch = lonSketch == null ? sink.lonSketch : lonSketch.merge(sink.lonSketch);
+                }
             }
+        } else {
+            scanRange(config, config.filePath(), 0, Long.MAX_VALUE);
+        }
+        validateBounds(bounds);
+        if (trim)
+            trimBounds(bounds, latSketch, lonSketch, config.boundsTrimPercent());
+        return bounds;
+    }
 
-            while ((line = reader.readLine()) != null) {
-                lineNum++;
-                line = line.trim();
-                if (line.isEmpty())
-                    continue;
+    /**
+     * @return The latitude sketch of the last scan, or {@code null} if trimming
+     *         is disabled.
+     */
+    public QuantileSketch latSketch() {
+        return latSketch;
+    }
 
-                String[] parts = line.split(delimiter);
-                if (parts.length < 4) {
-                    if (errorCount <= loggingErrorCount){
-                    logger.warn("(Pass 1, Line {}): Skipping invalid line. Expected 4 columns, found {}",
-                            lineNum, parts.length);
-                    }
-                }
+    /**
+     * @return The longitude sketch of the last scan, or {@code null} if trimming
+     *         is disabled.
+     */
+    public QuantileSketch lonSketch() {
+        return lonSketch;
+    }
 
-                try {
-                    double lat = Double.parseDouble(parts[config.latColumn()].trim());
-                    double lon = Double.parseDouble(parts[config.longColumn()].trim());
-                    if (lat < -90.0 || lat > 90.0 || lon < -180.0 || lon > 180.0) {
-                        if (errorCount <= loggingErrorCount){
-                        logger.warn(
-                                "(Pass 1, Line {}): Skipping out of range coord (Lat:{},Lon:{})",
-                                lineNum, lat, lon);
-                        }
-                        errorCount++;
-                        continue;
-                    }
+    /**
+     * Narrows bounds to the {@code percent} and {@code 100 - percent}
+     * percentiles of the sketched coordinates. The point count is left as is;
+     * points outside the trimmed bounds are skipped when the grid is populated.
+     *
+     * @param bounds    The raw bounds, updated in place.
+     * @param latSketch Sketch of all valid latitudes.
+     * @param lonSketch Sketch of all valid longitudes.
+     * @param percent   Percentage trimmed from each side, e.g. 0.1.
+     */
+    public static void trimBounds(Bounds bounds, QuantileSketch latSketch, QuantileSketch lonSketch,
+            double percent) {
+        if (latSketch == null || latSketch.count() == 0)
+            return;
+        double low = percent / 100.0;
+        double high = 1.0 - low;
+        logger.info("Raw {}", bounds);
+        bounds.minLat = latSketch.quantile(low);
+        bounds.maxLat = latSketch.quantile(high);
+        bounds.minLon = lonSketch.quantile(low);
+        bounds.maxLon = lonSketch.quantile(high);
+        logger.info("Trimmed bounds to the {}-{} percentiles of {} points", percent, 100 - percent,
+                latSketch.count());
+    }
+
+    /**
+     * Determines the partial bounds of the lines starting within the byte range
+     * {@code [start, end)} of a file. Header lines are only skipped for the range
+     * starting at offset 0. Unlike {@link #findDataBounds(Config)} the result is
+     * not validated, as a single shard may legitimately contain no valid points.
+     *
+     * @param config   The application configuration file
+     * @param filePath The file to scan.
+     * @param start    Offset of the first byte of the range (inclusive).
+     * @param end      Offset of the end of the range (exclusive).
+     * @return A Bounds object for the valid points of the range.
+     * @throws IOException If an error occurs reading the input file.
+     */
+    public Bounds findRangeBounds(Config config, String filePath, long start, long end) throws IOException {
+        scanRange(config, filePath, start, end);
+        return bounds;
+    }
+
+    private void scanRange(Config config, String filePath, long start, long end) throws IOException {
+        if (config.boundsTrimPercent() > 0 && latSketch == null) {
+            latSketch = new QuantileSketch();
+            lonSketch = new QuantileSketch();
+        }
+        new PointLineScanner(config, "Pass 1", "Skipping out of range coord")
+                .scan(filePath, start, end, (lat, lon, parts) -> {
+                    if (lat < -90.0 || lat > 90.0 || lon < -180.0 || lon > 180.0)
+                        return false;
                     bounds.minLat = Math.min(bounds.minLat, lat);
                     bounds.maxLat = Math.max(bounds.maxLat, lat);
                     bounds.minLon = Math.min(bounds.minLon, lon);
                     bounds.maxLon = Math.max(bounds.maxLon, lon);
                     bounds.pointCount++;
-                } catch (NumberFormatException e) {
-                    if (errorCount <=loggingErrorCount)
-                        Main.logger.warn("(Pass 1, Line %d): Skipping non-numeric: %s (%s)", lineNum, line,
-                                e.getMessage());
-                    errorCount++;
-                } catch (ArrayIndexOutOfBoundsException e) {
-                    if (errorCount <=loggingErrorCount)
-                        Main.logger.warn("(Pass 1, Line %d): Skipping bad format: %s", lineNum, line);
-                    errorCount++;
-                }
-            }
-        }
-        if (errorCount > loggingErrorCount)
-            logger.warn("Encountered {} total parse errors (first {} shown).", errorCount, loggingErrorCount);
-        else if (errorCount > 0)
-            System.err.printf("Encountered {} total parse errors.", errorCount);
+                    if (latSketch != null) {
+                        latSketch.update(lat);
+                        lonSketch.update(lon);
+                    }
+                    return true;
+                });
+    }
 
-        validateBounds();
-        return bounds;
+    /** Per-worker bounds of the pipelined pass. */
+    private static final class BoundsSink implements PointPipeline.PointSink {
+        final Bounds bounds = new Bounds();
+        final QuantileSketch latSketch;
+        final QuantileSketch lonSketch;
 
-    }
+        BoundsSink(boolean trim) {
+            this.latSketch = trim ? new QuantileSketch() : null;
+            this.lonSketch = trim ? new QuantileSketch() : null;
+        }
 
-    private void validateBounds() {
-        if (!bounds.isValid()) {
-            logger.error("No valid coordinate data found in the file matching config criteria.");
-            System.exit(1);
+        @Override
+        public boolean accept(double lat, double lon) {
+            if (lat < -90.0 || lat > 90.0 || lon < -180.0 || lon > 180.0)
+                return false;
+            bounds.minLat = Math.min(bounds.minLat, lat);
+            bounds.maxLat = Math.max(bounds.maxLat, lat);
+            bounds.minLon = Math.min(bounds.minLon, lon);
+            bounds.maxLon = Math.max(bounds.maxLon, lon);
+            bounds.pointCount++;
+            if (latSketch != null) {
+                latSketch.update(lat);
+                lonSketch.update(lon);
+            }
+            return true;
         }
+    }
+
+    /**
+     * Checks that bounds computed from the data contain at least one point.
+     *
+     * @throws IOException If no valid point was found.
+     */
+    static void validateBounds(Bounds bounds) throws IOException {
+        if (!bounds.isValid())
+            throw new IOException("No valid coordinate data found in the file matching config criteria.");
         if (!bounds.hasRange()) {
             logger.warn(
                     "All valid points are identical or very close.");
@@ -1,14 +1,22 @@
 package co.sedai;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import co.sedai.model.Bounds;
 import co.sedai.model.Config;
+import co.sedai.model.TimeWindows;
 
 /**
  * Handles the second pass of the plotting process. This class reads
@@ -23,6 +31,7 @@ public class GridDensityPopulator {
 
     private final Config config;
     private final Bounds bounds;
+    private final AtomicInteger overflowGrids = new AtomicInteger();
     public static Logger logger = LoggerFactory.getLogger(GridDensityPopulator.class);
 
     public GridDensityPopulator(Config config, Bounds bounds) {
@@ -50,114 +59,277 @@ public class GridDensityPopulator {
      * @throws IOException If an error occurs while reading the input data file.
      */
     public long[][] populate() throws IOException {
+        if (config.pipelineEnabled())
+            return populatePipelined();
+        return populate(config.filePath(), 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Populates the grid through a {@link PointPipeline}: one reader stage feeds
+     * blocks of the file to parser workers, each binning into its own grid. The
+     * per-worker grids are summed once the file is exhausted, releasing each one
+     * as soon as it has been added.
+     */
+    private long[][] populatePipelined() throws IOException {
+        logger.info("Populating density grids (pipelined)");
+        overflowGrids.set(0);
+        List<GridSink> sinks = new PointPipeline(config, "Pass 2", "Skipping point outside fixed bounds")
+                .run(config.filePath(), GridSink::new);
+        long[][] grid = config.narrowCounters() ? new long[config.mapHeight()][config.mapWidth()]
+                : sinks.get(0).grid;
+        long pointsProcessed = 0;
+        for (GridSink sink : sinks) {
+            sink.drainInto(grid);
+            pointsProcessed += sink.points;
+        }
+        logger.info("Processed {} points during grid population.", pointsProcessed);
+        return grid;
+    }
+
+    /**
+     * @return The number of per-worker {@code long} grids the last narrow
+     *         pipelined pass had to allocate because an {@code int} grid could
+     *         have overflowed.
+     */
+    int overflowGrids() {
+        return overflowGrids.get();
+    }
+
+    /**
+     * Populates the grid from coordinates already held in memory, without
+     * reading the input file.
+     *
+     * @param cache The cached points.
+     * @return A 2D long array (`long[mapHeight][mapWidth]`) of point counts.
+     */
+    public long[][] populate(PointCache cache) {
         long[][] grid = new long[config.mapHeight()][config.mapWidth()];
-        logger.info("Populating desntiy grids");
-        double latRange = bounds.maxLat() - bounds.minLat();
-        double lonRange = bounds.maxLon() - bounds.minLon();
+        double[] lats = cache.lats();
+        double[] lons = cache.lons();
         long pointsProcessed = 0;
-        long lineNum = 0;
-        boolean singleLat = latRange == 0.0;
-        boolean singleLon = lonRange == 0.0;
-        int mapWidth = config.mapWidth();
-        int mapHeight = config.mapHeight();
-        String filePath = config.filePath();
-        long errorCount = 0;
-        long loggingErrorCount=config.errorCount();
-        if (loggingErrorCount == -1 ) { loggingErrorCount = Long.MAX_VALUE;}
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            for (int i = 0; i < config.inputSkipHeaderLines() && (line = reader.readLine()) != null; i++) {
-                lineNum++;
-            }
+        for (int i = 0; i < cache.size(); i++) {
+            if (addPoint(grid, lats[i], lons[i]))
+                pointsProcessed++;
+        }
+        logger.info("Processed {} cached points during grid population.", pointsProcessed);
+        return grid;
+    }
 
-            while ((line = reader.readLine()) != null) {
-                lineNum++;
-                line = line.trim();
-                if (line.isEmpty()) {
-                    continue;
-                }
+    /**
+     * Per-worker grid of the pipelined pass. With
+     * {@link Config#narrowCounters()} the worker counts into an {@code int} grid
+     * (half the memory per worker) that is added straight into the final grid
+     * when the workers are merged. A {@code long} grid is only allocated if the
+     * worker sees enough points to overflow its {@code int} counts.
+     */
+    private final class GridSink implements PointPipeline.PointSink {
+        /** Wide counts; with narrow counters only the overflow spilled so far, if any. */
+        long[][] grid;
+        int[][] counts;
+        long points;
+        private int narrowPoints;
 
-                String delimiter = config.inputDelimiter();
+        GridSink() {
+            if (config.narrowCounters())
+                counts = new int[config.mapHeight()][config.mapWidth()];
+            else
+                grid = new long[config.mapHeight()][config.mapWidth()];
+        }
 
-                String[] parts = line.split(delimiter);
+        @Override
+        public boolean accept(double lat, double lon) {
+            if (counts == null) {
+                if (!addPoint(grid, lat, lon))
+                    return false;
+            } else {
+                int cell = cellIndex(lat, lon);
+                if (cell < 0)
+                    return false;
+                counts[cell / config.mapWidth()][cell % config.mapWidth()]++;
+                // No cell can exceed the number of points counted since the last spill.
+                if (++narrowPoints == Integer.MAX_VALUE)
+                    spill();
+            }
+            points++;
+            return true;
+        }
 
-                if (parts.length < 4) {
-                    if (errorCount <= loggingErrorCount) {
-                        logger.warn(
-                                "Warning (Pass 2, Line {}): Skipping invalid line (expected delimiter '{}'): {}",
-                                lineNum, config.inputDelimiter(), line);
-                        errorCount++;
-                        continue;
-                    }
+        /** Moves the narrow counts into {@link #grid}, allocating it on first use. */
+        private void spill() {
+            if (grid == null) {
+                grid = new long[counts.length][counts.length == 0 ? 0 : counts[0].length];
+                overflowGrids.incrementAndGet();
+            }
+            for (int y = 0; y < counts.length; y++) {
+                for (int x = 0; x < counts[y].length; x++) {
+                    grid[y][x] += counts[y][x];
+                    counts[y][x] = 0;
                 }
+            }
+            narrowPoints = 0;
+        }
 
-                try {
-                    double lat = Double.parseDouble(parts[config.latColumn()].trim());
-                    double lon = Double.parseDouble(parts[config.longColumn()].trim());
-                    int gridX, gridY;
-                    // Check if the point falls within the calculated bounds.
-                    // Points outside the bounds determined in the first pass are skipped.
-                    if (lat < bounds.minLat() || lat > bounds.maxLat() || lon < bounds.minLon()
-                            || lon > bounds.maxLon()) {
-                        if (errorCount <= loggingErrorCount) {
-                            logger.warn(
-                                    "Info (Pass 2, Line {}): Skipping point outside fixed bounds (Lat: {}, Lon: {})",
-                                    lineNum, lat, lon);
-                        }
-                        errorCount++;
-                        continue;
-                    }
-                    // Calculate the X coordinate (longitude -> column)
-
-                    if (singleLon)
-                        // If all points have the same longitude, place them in the middle column
-                        gridX = mapWidth / 2;
-                    else
-                        // Map longitude to grid column index
-                        // Formula: ((current_lon - min_lon) / total_lon_range) * map_width
-                        gridX = (int) (((lon - bounds.minLon()) / lonRange) * mapWidth);
-                    // Calculate the Y coordinate (latitude -> row)
-
-                    if (singleLat)
-                        // If all points have the same latitude, place them in the middle row
-                        gridY = mapHeight / 2;
-                    else
-                        // Map latitude to grid row index
-                        // Formula: ((max_lat - current_lat) / total_lat_range) * map_height
-                        gridY = (int) (((bounds.maxLat() - lat) / latRange) * mapHeight);
-                    // Clamp coordinates to ensure they are within the valid grid array bounds [0,
-                    // width-1] and [0, height-1]
-                    gridX = Math.max(0, Math.min(mapWidth - 1, gridX));
-                    gridY = Math.max(0, Math.min(mapHeight - 1, gridY));
-
-                    // Increment the count for the calculated grid cell
-                    grid[gridY][gridX]++;
-                    pointsProcessed++;
-
-                } catch (NumberFormatException e) {
-                    if (errorCount <= loggingErrorCount)
-                        logger.warn("Warning (Pass 2, Line {}): Skipping non-numeric data: {} ({})", lineNum,
-                                line, e.getMessage());
-                    errorCount++;
-                } catch (ArrayIndexOutOfBoundsException e) {
-                    if (errorCount < loggingErrorCount)
-                        logger.warn("Warning (Pass 2, Line {}): Skipping invalid line format: {}", lineNum,
-                                line);
-                    errorCount++;
+        /** Adds this worker's counts into {@code target} and releases them. */
+        void drainInto(long[][] target) {
+            for (int y = 0; y < target.length; y++) {
+                for (int x = 0; x < target[y].length; x++) {
+                    if (counts != null)
+                        target[y][x] += counts[y][x];
+                    if (grid != null && grid != target)
+                        target[y][x] += grid[y][x];
                 }
             }
-            if (errorCount >= loggingErrorCount)
-                logger.warn("Encountered {} total parse errors (first {} shown).", errorCount, loggingErrorCount);
-            else if (errorCount >0)
-                System.err.printf("Encountered {} total parse errors.", errorCount);
-
-            logger.info("Processed {} points during grid population.",
-                    pointsProcessed);
-        } catch (IOException e) {
-            logger.error("Error during file processing: " + e.getMessage());
-            throw e;
+            counts = null;
+            grid = null;
         }
+    }
+
+    /**
+     * Maps a point to its grid cell and increments the cell's count.
+     *
+     * @return {@code false} if the point lies outside the bounds and was not
+     *         counted.
+     */
+    boolean addPoint(long[][] grid, double lat, double lon) {
+        int cell = cellIndex(lat, lon);
+        if (cell < 0)
+            return false;
+        // Increment the count for the calculated grid cell
+        grid[cell / config.mapWidth()][cell % config.mapWidth()]++;
+        return true;
+    }
+
+    /**
+     * @return The cell of a point as {@code y * mapWidth + x}, or -1 if the
+     *         point lies outside the bounds.
+     */
+    private int cellIndex(double lat, double lon) {
+        if (!inBounds(lat, lon))
+            return -1;
+        int mapWidth = config.mapWidth();
+        int mapHeight = config.mapHeight();
+        double latRange = bounds.maxLat() - bounds.minLat();
+        double lonRange = bounds.maxLon() - bounds.minLon();
+        int gridX, gridY;
+        // Calculate the X coordinate (longitude -> column)
+        if (lonRange == 0.0)
+            // If all points have the same longitude, place them in the middle column
+            gridX = mapWidth / 2;
+        else
+            // Map longitude to grid column index
+            // Formula: ((current_lon - min_lon) / total_lon_range) * map_width
+            gridX = (int) (((lon - bounds.minLon()) / lonRange) * mapWidth);
+        // Calculate the Y coordinate (latitude -> row)
+        if (latRange == 0.0)
+            // If all points have the same latitude, place them in the middle row
+            gridY = mapHeight / 2;
+        else
+            // Map latitude to grid row index
+            // Formula: ((max_lat - current_lat) / total_lat_range) * map_height
+            gridY = (int) (((bounds.maxLat() - lat) / latRange) * mapHeight);
+        // Clamp coordinates to ensure they are within the valid grid array bounds [0,
+        // width-1] and [0, height-1]
+        gridX = Math.max(0, Math.min(mapWidth - 1, gridX));
+        gridY = Math.max(0, Math.min(mapHeight - 1, gridY));
+        return gridY * mapWidth + gridX;
+    }
+
+    private boolean inBounds(double lat, double lon) {
+        return lat >= bounds.minLat() && lat <= bounds.maxLat() && lon >= bounds.minLon()
+                && lon <= bounds.maxLon();
+    }
+
+    /**
+     * Populates one grid per time window of {@link Config#timeWindowSeconds()}
+     * in a single pass over the input file. The window of a point is taken from
+     * {@link Config#timeColumn()}; windows are aligned to the epoch, so the same
+     * settings always produce the same windows. Grids are only allocated for
+     * windows that receive a point; the windows in between share one empty grid.
+     *
+     * @return The windows from the first to the last one containing a point.
+     * @throws IOException If an error occurs while reading the input data file,
+     *                     or the points span more than
+     *                     {@link Config#timeMaxWindows()} windows.
+     */
+    public TimeWindows populateWindows() throws IOException {
+        long windowMillis = config.timeWindowSeconds() * 1000;
+        TreeMap<Long, long[][]> windows = new TreeMap<>();
+        logger.info("Populating density grids per {} s time window", config.timeWindowSeconds());
+        long pointsProcessed = new PointLineScanner(config, "Windows", "Skipping point outside bounds")
+                .scan(config.filePath(), 0, Long.MAX_VALUE, (lat, lon, parts) -> {
+                    long time = parseTimeMillis(parts[config.timeColumn()].trim(), config.timeFormat());
+                    if (!inBounds(lat, lon))
+                        return false;
+                    long start = Math.floorDiv(time, windowMillis) * windowMillis;
+                    long[][] grid = windows.get(start);
+                    if (grid == null) {
+                        long first = windows.isEmpty() ? start : Math.min(start, windows.firstKey());
+                        long last = windows.isEmpty() ? start : Math.max(start, windows.lastKey());
+                        if ((last - first) / windowMillis + 1 > config.timeMaxWindows())
+                            throw new IOException("Points span more than " + config.timeMaxWindows()
+                                    + " time windows; increase time.window_seconds or time.max_windows.");
+                        grid = new long[config.mapHeight()][config.mapWidth()];
+                        windows.put(start, grid);
+                    }
+                    return addPoint(grid, lat, lon);
+                });
+        logger.info("Processed {} points into {} time windows.", pointsProcessed, windows.size());
+
+        if (windows.isEmpty())
+            return new TimeWindows(0, windowMillis, List.of());
+        long[][] empty = new long[config.mapHeight()][config.mapWidth()];
+        List<long[][]> grids = new ArrayList<>();
+        long next = windows.firstKey();
+        for (Map.Entry<Long, long[][]> window : windows.entrySet()) {
+            for (; next < window.getKey(); next += windowMillis)
+                grids.add(empty);
+            grids.add(window.getValue());
+            next += windowMillis;
+        }
+        return new TimeWindows(windows.firstKey(), windowMillis, grids);
+    }
+
+    /**
+     * @param value  The timestamp as found in the input.
+     * @param format {@code epoch_seconds}, {@code epoch_millis} or {@code iso}
+     *               (ISO-8601 instant, or a local date-time taken as UTC).
+     * @return The timestamp in epoch milliseconds.
+     * @throws NumberFormatException If an epoch value is not a number.
+     * @throws DateTimeException     If an ISO value cannot be parsed.
+     */
+    static long parseTimeMillis(String value, String format) {
+        switch (format) {
+            case "epoch_millis":
+                return Long.parseLong(value);
+            case "iso":
+                String iso = value.replace(' ', 'T');
+                if (iso.endsWith("Z") || iso.matches(".*[+-]\\d\\d:\\d\\d$"))
+                    return Instant.parse(iso).toEpochMilli();
+                return LocalDateTime.parse(iso).toInstant(ZoneOffset.UTC).toEpochMilli();
+            default:
+                return Math.round(Double.parseDouble(value) * 1000);
+        }
+    }
+
+    /**
+     * Populates a density grid from only the lines starting within the byte range
+     * {@code [start, end)} of a file. Header lines are only skipped for the range
+     * starting at offset 0. Grids of adjacent ranges can be summed cell by cell to
+     * obtain the grid of the whole file.
+     *
+     * @param filePath The file to read.
+     * @param start    Offset of the first byte of the range (inclusive).
+     * @param end      Offset of the end of the range (exclusive).
+     * @return A 2D long array (`long[mapHeight][mapWidth]`) of the range's counts.
+     * @throws IOException If an error occurs while reading the input data file.
+     */
+    public long[][] populate(String filePath, long start, long end) throws IOException {
+        long[][] grid = new long[config.mapHeight()][config.mapWidth()];
+        logger.info("Populating density grids");
+        // Points outside the bounds determined in the first pass are skipped.
+        long pointsProcessed = new PointLineScanner(config, "Pass 2", "Skipping point outside fixed bounds")
+                .scan(filePath, start, end, (lat, lon, parts) -> addPoint(grid, lat, lon));
+        logger.info("Processed {} points during grid population.", pointsProcessed);
         return grid;
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package co.sedai;
+
+import java.io.IOException;
+
+import org.slf4j.LoggerFactory;
+
+import co.sedai.model.Config;
+
+/**
+ * Fast-startup entry point for rendering many small maps, e.g. from cron.
+ * <p>
+ * Behaves like {@link Main} but keeps the JVM start-up path short:
+ * <ul>
+ * <li>The configuration is read by {@link ConfigReader#load(String)} using
+ * {@link java.util.Properties}, so Apache Commons Configuration and
+ * BeanUtils are never loaded (they may be left off the class path).</li>
+ * <li>Logging is not touched until the configuration has been read. Unless
+ * {@code log4j2.configurationFile} is set, Log4j2 is then initialized from
+ * {@code log4j2-lean.xml}: console only, no per-run log file and no
+ * configuration monitor thread.</li>
+ * </ul>
+ * Combine with the AppCDS archive built by the {@code appcds} Maven profile:
+ * {@code java -XX:SharedArchiveFile=target/sedai.jsa -cp target/Sedai-1.0-SNAPSHOT-all.jar co.sedai.LeanMain [config]}.
+ */
+public final class LeanMain {
+    static final String LEAN_LOGGING_CONFIG = "log4j2-lean.xml";
+
+    private LeanMain() {
+    }
+
+    public static void main(String[] args) {
+        String configName = args.length > 0 ? args[0] : "plotter.properties";
+        Config config;
+        try {
+            config = ConfigReader.load(configName);
+        } catch (IOException e) {
+            System.err.println("FATAL: Error loading configuration file '" + configName + "': " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("FATAL: Invalid configuration value in '" + configName + "': " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        if (System.getProperty("log4j2.configurationFile") == null)
+            System.setProperty("log4j2.configurationFile", LEAN_LOGGING_CONFIG);
+        try {
+            MapPlotter.plot(config, configName);
+        } catch (IOException e) {
+            LoggerFactory.getLogger(LeanMain.class).error("Error during file processing: {}", e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            LoggerFactory.getLogger(LeanMain.class).error("An unexpected error occurred: {}", e.getMessage(), e);
+            System.exit(1);
+        }
+    }
+}
@@ -6,8 +6,8 @@ import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import co.sedai.model.Bounds;
 import co.sedai.model.Config;
+import co.sedai.shard.ShardCoordinator;
 
 import java.io.IOException;
 
@@ -19,7 +19,8 @@ import java.io.IOException;
  * text-based map. It performs the following steps:
  * <ol>
  * <li>Loads configuration settings from a properties file
- * ({@code plotter.properties}).</li>
+ * ({@code plotter.properties}, or the file/resource given as first
+ * argument).</li>
  * <li>Performs a first pass over the data file to determine the geographical
  * bounds (min/max latitude and longitude) using {@link GetDatBounds}.</li>
  * <li>Performs a second pass over the data file to populate a 2D grid
@@ -28,6 +29,18 @@ import java.io.IOException;
  * <li>Renders the populated grid as an ASCII map to the console (via logger)
  * using {@link RenderAsciiMap}.</li>
  * </ol>
+ * The first pass is skipped when fixed bounds are configured. With
+ * {@code shard.enabled} both passes are distributed over worker processes by
+ * {@link ShardCoordinator}. With {@code input.cache_points} the file is parsed
+ * only once into a {@link PointCache} and both passes run over memory. The
+ * steps after loading the configuration are implemented by {@link MapPlotter};
+ * {@link LeanMain} runs them without Commons Configuration for fast startup and
+ * {@link BatchRunner} renders many configurations in one JVM. With
+ * {@code tiles.enabled}, {@link RenderMapTiles} writes a z/x/y tile pyramid
+ * instead of a single map. With
+ * {@code memory.planner} on, {@link ExecutionPlanner} first fits the
+ * strategy (point cache or second scan, parser threads, counter width) to the
+ * memory budget.
  * The application exits with a non-zero status code if configuration loading
  * fails or
  * if errors occur during file processing.
@@ -38,40 +51,20 @@ public class Main {
     private static final String DEFAULT_CONFIG_RESOURCE = "plotter.properties";
 
     public static void main(String[] args) {
-
+        String configName = args.length > 0 ? args[0] : DEFAULT_CONFIG_RESOURCE;
         try {
-            Config config = loadConfig(DEFAULT_CONFIG_RESOURCE);
+            Config config = loadConfig(configName);
             if (config == null) {
                 System.exit(1);
             }
-            logger.info("Starting ASCII Map Plotter:");
-            logger.info("Input Data File: " + config.filePath());
-            logger.info("Using Config: (" + DEFAULT_CONFIG_RESOURCE + ")");
-            logger.info("Map Size: {} x {}", config.mapWidth(), config.mapHeight());
-            logger.info("Delimiter: '" + config.inputDelimiter() + "'");
-            logger.info("Skip Header Lines: " + config.inputSkipHeaderLines());
-            logger.info("Render HTML output : "+ config.htmlEnabled());;
-            
-            
-            Bounds bounds;
-            logger.info("Finding data bounds...");
-            GetDatBounds dataBoundsFinder = new GetDatBounds();
-            bounds = dataBoundsFinder.findDataBounds(config);
-            logger.info(bounds.toString());
-            logger.info("Populating grid...");
-            GridDensityPopulator populator = new GridDensityPopulator(config, bounds);
-            long densityGrid[][] = populator.populate();
-            new RenderAsciiMap(densityGrid, config, bounds).renderOutputAsciiMap(config.htmlEnabled());;
-            if (config.htmlEnabled()){
-
-            }
+            MapPlotter.plot(config, configName);
         } catch (ConfigurationException e) {
-            logger.error("FATAL: Error loading configuration file '{}': {}", DEFAULT_CONFIG_RESOURCE, e.getMessage());
+            logger.error("FATAL: Error loading configuration file '{}': {}", configName, e.getMessage());
             e.printStackTrace();
             System.exit(1);
         } catch (IllegalArgumentException e) {
             e.printStackTrace();
-            logger.error("FATAL: Invalid configuration value in '{}': {}", DEFAULT_CONFIG_RESOURCE, e.getMessage());
+            logger.error("FATAL: Invalid configuration value in '{}': {}", configName, e.getMessage());
             System.exit(1);
         } catch (IOException e) {
             logger.error("Error during file processing: " + e.getMessage());
@@ -88,8 +81,8 @@ public class Main {
      * Loads application configuration from a properties file located on the
      * classpath.
      * <p>
-     * Uses Apache Commons Configuration to read the properties file and validates
-     * essential configuration values.
+     * Uses Apache Commons Configuration to read the properties file; the values
+     * are validated by {@link ConfigReader}.
      *
      * @param configurationResourceName The name of the properties file resource
      *                                  (e.g., "plotter.properties").
@@ -103,38 +96,9 @@ public class Main {
     private static Config loadConfig(String configurationResourceName)
             throws ConfigurationException, IllegalArgumentException {
         Configurations configs = new Configurations();
-        Configuration configData = null;
         logger.info("Loading configuration from classpath resource: {}", configurationResourceName);
 
-        configData = configs.properties(configurationResourceName);
-        String filePath = configData.getString("input.file_path");
-        int width = configData.getInt("map.width");
-        int height = configData.getInt("map.height");
-        String delimiter = configData.getString("input.delimiter");
-        int skipLines = configData.getInt("input.skip_header_lines");
-        String densityCharsStr = configData.getString("render.density_chars");
-        int latColumn = configData.getInt("input.lat_column");
-        int longColumn = configData.getInt("input.long_column");
-        boolean htmlEnabled = configData.getBoolean("render.html_enabled");
-        String htmlFilePath = configData.getString("render.file_path");
-        long errorCount = configData.getLong("log.error_count");
-
-        if (filePath == null || filePath.trim().isEmpty())
-            throw new IllegalArgumentException("Missing required configuration property: input.file_path");
-        if (width <= 0 || height <= 0)
-            throw new IllegalArgumentException("Map width and height must be >0.");
-        if (skipLines < 0)
-            throw new IllegalArgumentException("input.skip_header_lines cannot be negative.");
-        if (densityCharsStr == null || densityCharsStr.length() < 3)
-            throw new IllegalArgumentException("render.density_chars must contain at least 2 characters.");
-        if (latColumn < 0 || longColumn < 0 || latColumn == longColumn) {
-            throw new IllegalArgumentException(
-                    "input.lat_column and input.long_column must be non-negative and different.");
-        }
-        return new Config(
-                filePath.trim(), width, height, delimiter, skipLines,
-                densityCharsStr.toCharArray(),
-                latColumn, longColumn, htmlEnabled, htmlFilePath, errorCount);
-
+        Configuration configData = configs.properties(configurationResourceName);
+        return ConfigReader.read(key -> configData.containsKey(key) ? configData.getString(key) : null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,218 @@
+package co.sedai;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+import co.sedai.model.TimeWindows;
+import co.sedai.shard.ShardCoordinator;
+
+/**
+ * Runs the plotting steps for a loaded {@link Config}: bounds, grid population
+ * (sequential, cached or sharded) and rendering, or time-window frames or
+ * tiles instead of a single map. Shared by the entry points {@link Main} and
+ * {@link LeanMain}.
+ */
+final class MapPlotter {
+    static final Logger logger = LoggerFactory.getLogger(MapPlotter.class);
+
+    private MapPlotter() {
+    }
+
+    /**
+     * @param config     The validated configuration.
+     * @param configName Name of the configuration source, for logging.
+     * @throws IOException If an error occurs reading the input or writing output.
+     */
+    static void plot(Config config, String configName) throws IOException {
+        plot(config, configName, null);
+    }
+
+    /**
+     * @param config     The validated configuration.
+     * @param configName Name of the configuration source, for logging.
+     * @param points     Points already parsed from {@link Config#filePath()} with
+     *                   the same parse settings, or {@code null} to read the file.
+     *                   Used by {@link BatchRunner} to share one parse between
+     *                   several maps; ignored in shard and time-window mode,
+     *                   which parse the input themselves.
+     * @throws IOException If an error occurs reading the input or writing output.
+     */
+    static void plot(Config config, String configName, PointCache points) throws IOException {
+        plot(config, configName, points, 0);
+    }
+
+    /**
+     * @param config      The validated configuration.
+     * @param configName  Name of the configuration source, for logging.
+     * @param points      Points already parsed, see
+     *                    {@link #plot(Config, String, PointCache)}.
+     * @param budgetShare Memory the {@link ExecutionPlanner} may plan this run
+     *                    for when other runs share the JVM, or 0 for all that
+     *                    is free.
+     * @throws IOException If an error occurs reading the input or writing output.
+     */
+    static void plot(Config config, String configName, PointCache points, long budgetShare) throws IOException {
+        if (config.memoryPlanner() && !config.shardEnabled()) {
+            ExecutionPlanner.ExecutionPlan plan = ExecutionPlanner.plan(config, budgetShare, points);
+            logger.info("Execution plan: {}", plan);
+            if (config.timeColumn() >= 0 && plan.maxWindows() < config.timeMaxWindows())
+                logger.warn("Memory budget limits time windows to {} (time.max_windows is {})",
+                        plan.maxWindows(), config.timeMaxWindows());
+            if (points == null && config.pipelineExplicit() && config.pipelineEnabled() && plan.threads() < 2)
+                logger.warn("Execution plan scans sequentially although pipeline.enabled is true");
+            if (points == null && config.cachePointsExplicit() && config.cachePoints() && !plan.cachePoints())
+                logger.warn("Execution plan does not cache points although input.cache_points is true");
+            config = plan.apply(config);
+        }
+        logger.info("Starting ASCII Map Plotter:");
+        logger.info("Input Data File: " + config.filePath());
+        logger.info("Using Config: (" + configName + ")");
+        logger.info("Map Size: {} x {}", config.mapWidth(), config.mapHeight());
+        logger.info("Delimiter: '" + config.inputDelimiter() + "'");
+        logger.info("Skip Header Lines: " + config.inputSkipHeaderLines());
+        logger.info("Render HTML output : "+ config.htmlEnabled());
+        if (config.pipelineEnabled())
+            logger.info("Pipelined parsing: {} {} threads, {} KB blocks", config.pipelineThreads() > 0
+                    ? config.pipelineThreads() : Runtime.getRuntime().availableProcessors(),
+                    config.pipelineVirtualThreads() ? "virtual" : "platform", config.pipelineBlockSize() / 1024);
+
+        if (config.timeColumn() >= 0) {
+            plotWindows(config);
+            return;
+        }
+        if (config.tilesEnabled()) {
+            plotTiles(config, points);
+            return;
+        }
+
+        Bounds bounds;
+        long densityGrid[][];
+        if (config.shardEnabled()) {
+            logger.info("Shard mode: {} remote, {} local workers over {}", config.shardWorkers().size(),
+                    config.shardLocalWorkers(), config.shardInputFiles());
+            try (ShardCoordinator coordinator = ShardCoordinator.start(config)) {
+                logger.info("Finding data bounds...");
+                bounds = config.fixedBounds() != null ? config.fixedBounds() : coordinator.findBounds();
+                logger.info(bounds.toString());
+                logger.info("Populating grid...");
+                densityGrid = coordinator.populate(bounds);
+            }
+        } else if (points != null || config.cachePoints()) {
+            PointCache cache = points;
+            if (cache == null) {
+                logger.info("Caching points...");
+                cache = PointCache.load(config);
+            }
+            logger.info("Finding data bounds...");
+            if (config.fixedBounds() != null) {
+                bounds = config.fixedBounds();
+            } else {
+                bounds = cache.bounds();
+                GetDatBounds.validateBounds(bounds);
+                if (config.boundsTrimPercent() > 0)
+                    GetDatBounds.trimBounds(bounds, cache.latSketch(), cache.lonSketch(),
+                            config.boundsTrimPercent());
+            }
+            logger.info(bounds.toString());
+            logger.info("Populating grid...");
+            densityGrid = new GridDensityPopulator(config, bounds).populate(cache);
+        } else {
+            logger.info("Finding data bounds...");
+            if (config.fixedBounds() != null) {
+                bounds = config.fixedBounds();
+            } else {
+                GetDatBounds dataBoundsFinder = new GetDatBounds();
+                bounds = dataBoundsFinder.findDataBounds(config);
+            }
+            logger.info(bounds.toString());
+            logger.info("Populating grid...");
+            GridDensityPopulator populator = new GridDensityPopulator(config, bounds);
+            densityGrid = populator.populate();
+        }
+        if (!config.smoothKernel().equals("none")) {
+            logger.info("Smoothing grid ({} kernel, bandwidth {} cells)...", config.smoothKernel(),
+                    config.smoothBandwidth());
+            new DensitySmoother(config).smooth(densityGrid);
+        }
+        if (config.rasterEnabled())
+            new RenderRasterMap(densityGrid, config).write();
+        // A raster map replaces the text map unless HTML output is requested too.
+        if (!config.rasterEnabled() || config.htmlEnabled())
+            new RenderAsciiMap(densityGrid, config, bounds).renderOutputAsciiMap(config.htmlEnabled());
+    }
+
+    /**
+     * Writes the tile pyramid. Only the bounds need a pass of their own; all
+     * zoom levels are then binned from a single scan, or from the cached points.
+     */
+    private static void plotTiles(Config config, PointCache points) throws IOException {
+        logger.info("Tiles: zoom 0 to {}, {} cells per tile, into {}", config.tilesMaxZoom(), config.tileSize(),
+                config.tilesDirectory());
+        PointCache cache = points;
+        if (cache == null && config.cachePoints()) {
+            logger.info("Caching points...");
+            cache = PointCache.load(config);
+        }
+        logger.info("Finding data bounds...");
+        Bounds bounds;
+        if (config.fixedBounds() != null) {
+            bounds = config.fixedBounds();
+        } else if (cache != null) {
+            bounds = cache.bounds();
+            GetDatBounds.validateBounds(bounds);
+            if (config.boundsTrimPercent() > 0)
+                GetDatBounds.trimBounds(bounds, cache.latSketch(), cache.lonSketch(), config.boundsTrimPercent());
+        } else {
+            bounds = new GetDatBounds().findDataBounds(config);
+        }
+        logger.info(bounds.toString());
+        RenderMapTiles tiles = new RenderMapTiles(config, bounds);
+        if (cache != null)
+            tiles.render(cache);
+        else
+            tiles.render();
+    }
+
+    /**
+     * Renders one frame per time window. The windows need the time column, so
+     * they are always filled by a sequential scan, after the bounds of all
+     * points have been found (or taken from the fixed bounds).
+     */
+    private static void plotWindows(Config config) throws IOException {
+        logger.info("Time windows: column {}, {} s per window, {} frame output", config.timeColumn(),
+                config.timeWindowSeconds(), config.timeFrameOutput());
+        logger.info("Finding data bounds...");
+        Bounds bounds = config.fixedBounds() != null ? config.fixedBounds()
+                : new GetDatBounds().findDataBounds(config);
+        logger.info(bounds.toString());
+        TimeWindows windows = new GridDensityPopulator(config, bounds).populateWindows();
+        if (!config.smoothKernel().equals("none")) {
+            logger.info("Smoothing {} frames ({} kernel, bandwidth {} cells)...", windows.size(),
+                    config.smoothKernel(), config.smoothBandwidth());
+            // The windows were populated for this run, so they are smoothed in place
+            // (see TimeWindows), each distinct grid once; the shared empty grid
+            // stays all-zero.
+            DensitySmoother smoother = new DensitySmoother(config);
+            Set<long[][]> smoothed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (long[][] grid : windows.grids()) {
+                if (smoothed.add(grid))
+                    smoother.smooth(grid);
+            }
+        }
+        long maxCount = Math.max(1, windows.maxCount());
+        if (config.rasterEnabled()) {
+            for (int i = 0; i < windows.size(); i++)
+                new RenderRasterMap(windows.grids().get(i), config,
+                        RenderAsciiMap.framePath(config.rasterFilePath(), i), maxCount).write();
+        }
+        if (!config.rasterEnabled() || config.htmlEnabled())
+            RenderAsciiMap.renderFrames(windows, config, bounds);
+    }
+}
@@ -0,0 +1,139 @@
+package co.sedai;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+import co.sedai.model.QuantileSketch;
+
+/**
+ * In-memory copy of the valid coordinates of an input file, stored as two
+ * primitive {@code double} arrays (16 bytes per point).
+ * <p>
+ * Loading the cache parses the file once; bounds are then computed with
+ * {@link BoundsKernel} and the grid is binned straight from the arrays
+ * ({@link GridDensityPopulator#populate(PointCache)}), so the file is never
+ * read a second time.
+ */
+public final class PointCache {
+    static final Logger logger = LoggerFactory.getLogger(PointCache.class);
+
+    private double[] lats;
+    private double[] lons;
+    private int size;
+
+    PointCache() {
+        this(1024);
+    }
+
+    PointCache(int capacity) {
+        this.lats = new double[capacity];
+        this.lons = new double[capacity];
+    }
+
+    /**
+     * Parses the input file into a cache, skipping the same lines as the bounds
+     * pass (invalid lines and coordinates outside -90..90 / -180..180).
+     *
+     * @param config The application configuration.
+     * @return The loaded cache.
+     * @throws IOException If an error occurs reading the input file.
+     */
+    public static PointCache load(Config config) throws IOException {
+        List<LoadSink> sinks = new PointPipeline(config, "Load", "Skipping out of range coord")
+                .run(config.filePath(), LoadSink::new);
+        long total = 0;
+        for (LoadSink sink : sinks)
+            total += sink.cache.size;
+        if (total > Integer.MAX_VALUE - 8)
+            throw new IOException("Too many points to cache in memory: " + total);
+        PointCache cache = new PointCache((int) total);
+        for (LoadSink sink : sinks) {
+            PointCache part = sink.cache;
+            System.arraycopy(part.lats, 0, cache.lats, cache.size, part.size);
+            System.arraycopy(part.lons, 0, cache.lons, cache.size, part.size);
+            cache.size += part.size;
+        }
+        logger.info("Cached {} points ({} MB)", cache.size, (long) cache.size * 16 / (1024 * 1024));
+        return cache;
+    }
+
+    /** Per-worker cache filled while loading. */
+    private static final class LoadSink implements PointPipeline.PointSink {
+        final PointCache cache = new PointCache();
+
+        @Override
+        public boolean accept(double lat, double lon) {
+            if (lat < -90.0 || lat > 90.0 || lon < -180.0 || lon > 180.0)
+                return false;
+            cache.add(lat, lon);
+            return true;
+        }
+    }
+
+    void add(double lat, double lon) {
+        if (size == lats.length) {
+            int capacity = Math.max(16, lats.length + (lats.length >> 1));
+            lats = Arrays.copyOf(lats, capacity);
+            lons = Arrays.copyOf(lons, capacity);
+        }
+        lats[size] = lat;
+        lons[size] = lon;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** @return Bytes held by the backing arrays, including unused capacity. */
+    public long footprintBytes() {
+        return (long) (lats.length + lons.length) * Double.BYTES;
+    }
+
+    /** Backing latitude array, valid in {@code [0, size())}. */
+    double[] lats() {
+        return lats;
+    }
+
+    /** Backing longitude array, valid in {@code [0, size())}. */
+    double[] lons() {
+        return lons;
+    }
+
+    /**
+     * @return The bounds of all cached points, computed in parallel.
+     */
+    public Bounds bounds() {
+        return BoundsKernel.reduce(lats, lons, size);
+    }
+
+    /** @return A quantile sketch of all cached latitudes. */
+    public QuantileSketch latSketch() {
+        return sketch(lats, size);
+    }
+
+    /** @return A quantile sketch of all cached longitudes. */
+    public QuantileSketch lonSketch() {
+        return sketch(lons, size);
+    }
+
+    /** Sketches chunks of the array in parallel and merges the partial sketches. */
+    private static QuantileSketch sketch(double[] values, int size) {
+        int chunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                size / BoundsKernel.LEAF_SIZE));
+        return IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            QuantileSketch sketch = new QuantileSketch();
+            int to = (int) ((long) size * (chunk + 1) / chunks);
+            for (int i = (int) ((long) size * chunk / chunks); i < to; i++)
+                sketch.update(values[i]);
+            return sketch;
+        }).reduce(QuantileSketch::merge).orElseGet(QuantileSketch::new);
+    }
+}
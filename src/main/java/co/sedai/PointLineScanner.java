@@ -0,0 +1,124 @@
+package co.sedai;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.model.Config;
+
+/**
+ * Sequential read/split/parse loop over the lines of a delimited point file,
+ * shared by every single-threaded pass. It skips header lines and blank lines,
+ * parses the coordinate columns and hands each point to a {@link RowSink};
+ * malformed lines and rejected points are counted, and logged up to
+ * {@link Config#errorCount()}, the same way {@link PointPipeline} does.
+ */
+final class PointLineScanner {
+    static final Logger logger = LoggerFactory.getLogger(PointLineScanner.class);
+
+    private final Config config;
+    private final String passName;
+    private final String rejectMessage;
+    private final long loggingErrorCount;
+    private long errorCount;
+
+    /** Receives the parsed points of a scan. */
+    interface RowSink {
+        /**
+         * @param parts All columns of the line, for sinks that read more than
+         *              the coordinates. A {@link NumberFormatException},
+         *              {@link DateTimeException} or
+         *              {@link ArrayIndexOutOfBoundsException} thrown while
+         *              reading them marks the line as invalid.
+         * @return {@code false} if the point was rejected (it is then counted and
+         *         logged as an error).
+         * @throws IOException To abort the scan.
+         */
+        boolean accept(double lat, double lon, String[] parts) throws IOException;
+    }
+
+    /**
+     * @param config        The application configuration.
+     * @param passName      Label used in warnings, e.g. "Pass 1".
+     * @param rejectMessage Warning logged for points rejected by the sink.
+     */
+    PointLineScanner(Config config, String passName, String rejectMessage) {
+        this.config = config;
+        this.passName = passName;
+        this.rejectMessage = rejectMessage;
+        this.loggingErrorCount = loggingErrorCount(config);
+    }
+
+    /**
+     * Scans the lines starting within the byte range {@code [start, end)} of a
+     * file. Header lines are only skipped for the range starting at offset 0.
+     *
+     * @param filePath The file to read.
+     * @param start    Offset of the first byte of the range (inclusive).
+     * @param end      Offset of the end of the range (exclusive).
+     * @param sink     Receives every parsed point.
+     * @return The number of points accepted by the sink.
+     * @throws IOException If the file cannot be read or the sink aborts the scan.
+     */
+    long scan(String filePath, long start, long end, RowSink sink) throws IOException {
+        long accepted = 0;
+        long lineNum = 0;
+        errorCount = 0;
+        try (RangeLineReader reader = new RangeLineReader(filePath, start, end)) {
+            String line;
+            int skipLines = start == 0 ? config.inputSkipHeaderLines() : 0;
+            for (int i = 0; i < skipLines && (line = reader.readLine()) != null; i++) {
+                lineNum++;
+            }
+
+            while ((line = reader.readLine()) != null) {
+                lineNum++;
+                line = line.trim();
+                if (line.isEmpty())
+                    continue;
+                String[] parts = line.split(config.inputDelimiter());
+                double lat, lon;
+                boolean accept;
+                try {
+                    lat = Double.parseDouble(parts[config.latColumn()].trim());
+                    lon = Double.parseDouble(parts[config.longColumn()].trim());
+                    accept = sink.accept(lat, lon, parts);
+                } catch (NumberFormatException | DateTimeException | ArrayIndexOutOfBoundsException e) {
+                    reportError("Skipping invalid line", lineNum, line);
+                    continue;
+                } catch (IOException e) {
+                    throw new IOException(String.format("(%s, Line %d): %s", passName, lineNum, e.getMessage()), e);
+                }
+                if (accept)
+                    accepted++;
+                else
+                    reportError(rejectMessage, lineNum, "Lat: " + lat + ", Lon: " + lon);
+            }
+        } catch (IOException e) {
+            logger.error("Error during file processing: " + e.getMessage());
+            throw e;
+        }
+        logErrorSummary(errorCount, loggingErrorCount);
+        return accepted;
+    }
+
+    private void reportError(String message, long lineNum, String detail) {
+        if (errorCount++ < loggingErrorCount)
+            logger.warn("({}, Line {}): {} ({})", passName, lineNum, message, detail);
+    }
+
+    /** @return How many errors a pass logs individually. */
+    static long loggingErrorCount(Config config) {
+        return config.errorCount() == -1 ? Long.MAX_VALUE : config.errorCount();
+    }
+
+    /** Logs the total error count of a pass, if there were any. */
+    static void logErrorSummary(long errorCount, long loggingErrorCount) {
+        if (errorCount > loggingErrorCount)
+            logger.warn("Encountered {} total parse errors (first {} shown).", errorCount, loggingErrorCount);
+        else if (errorCount > 0)
+            logger.warn("Encountered {} total parse errors.", errorCount);
+    }
+}
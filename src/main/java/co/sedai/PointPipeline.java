@@ -0,0 +1,306 @@
+package co.sedai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.model.Config;
+
+/**
+ * Staged read/parse pipeline over a delimited point file.
+ * <p>
+ * A single reader stage fills fixed-size byte blocks from the file, cut at the
+ * last line terminator (the partial line is carried over into the next block).
+ * A pool of parser workers takes filled blocks, splits and parses the lines and
+ * hands every point to its own {@link PointSink}, so sinks never need
+ * synchronization. Blocks circulate between a bounded "free" queue and a
+ * bounded "filled" queue: the reader blocks when parsers fall behind, parsers
+ * block when the disk does, and no block is allocated after start-up.
+ * <p>
+ * Workers run on virtual or platform threads as configured by
+ * {@link Config#pipelineVirtualThreads()}.
+ */
+final class PointPipeline {
+    static final Logger logger = LoggerFactory.getLogger(PointPipeline.class);
+    private static final Block POISON = new Block(0);
+
+    private final Config config;
+    private final String passName;
+    private final String rejectMessage;
+    private final AtomicLong errorCount = new AtomicLong();
+    private final long loggingErrorCount;
+    private final byte delimiter;
+    /**
+     * Plain single-byte delimiters are split on the bytes directly; anything else
+     * goes through String.split to keep the regex semantics of the other passes.
+     */
+    private final boolean byteDelimiter;
+
+    /** Receives the parsed points of one parser worker. */
+    interface PointSink {
+        /**
+         * @return {@code false} if the point was rejected (it is then counted and
+         *         logged as an error).
+         */
+        boolean accept(double lat, double lon);
+    }
+
+    /**
+     * @param config        The application configuration.
+     * @param passName      Label used in warnings, e.g. "Pass 1".
+     * @param rejectMessage Warning logged for points rejected by a sink.
+     */
+    PointPipeline(Config config, String passName, String rejectMessage) {
+        this.config = config;
+        this.passName = passName;
+        this.rejectMessage = rejectMessage;
+        this.loggingErrorCount = PointLineScanner.loggingErrorCount(config);
+        byte[] delimiterBytes = config.inputDelimiter().getBytes(StandardCharsets.UTF_8);
+        this.byteDelimiter = delimiterBytes.length == 1 && ".$|()[{^?*+\\".indexOf(delimiterBytes[0]) < 0;
+        this.delimiter = byteDelimiter ? delimiterBytes[0] : 0;
+    }
+
+    /**
+     * Streams the whole file through the pipeline.
+     *
+     * @param filePath    The file to read.
+     * @param sinkFactory Creates one sink per parser worker.
+     * @return The sinks of all workers, to be merged by the caller.
+     * @throws IOException If the file cannot be read or a worker fails.
+     */
+    <S extends PointSink> List<S> run(String filePath, Supplier<S> sinkFactory) throws IOException {
+        int workers = config.pipelineThreads() > 0 ? config.pipelineThreads()
+                : Runtime.getRuntime().availableProcessors();
+        int queueDepth = Math.max(1, config.pipelineQueueDepth());
+        // Every worker may hold one block, the reader two (current and next).
+        BlockingQueue<Block> free = new ArrayBlockingQueue<>(queueDepth + workers + 2);
+        for (int i = 0; i < queueDepth + workers + 2; i++)
+            free.add(new Block(config.pipelineBlockSize()));
+        BlockingQueue<Block> filled = new ArrayBlockingQueue<>(queueDepth + workers);
+
+        List<S> sinks = new ArrayList<>();
+        for (int i = 0; i < workers; i++)
+            sinks.add(sinkFactory.get());
+
+        ThreadFactory threadFactory = config.pipelineVirtualThreads()
+                ? Thread.ofVirtual().name("pipeline-", 0).factory()
+                : Thread.ofPlatform().name("pipeline-", 0).factory();
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(threadFactory);
+        try {
+            List<Future<Long>> parsers = new ArrayList<>();
+            for (S sink : sinks)
+                parsers.add(executor.submit(() -> parse(filled, free, sink)));
+            Future<Long> reader = executor.submit(() -> read(filePath, free, filled, workers));
+            long bytes = reader.get();
+            for (Future<Long> parser : parsers)
+                parser.get();
+            double seconds = (System.nanoTime() - started) / 1e9;
+            logger.info("{}: read {} bytes with {} {} parser threads in {} s ({} MB/s)", passName, bytes, workers,
+                    config.pipelineVirtualThreads() ? "virtual" : "platform", String.format("%.3f", seconds),
+                    String.format("%.1f", bytes / 1e6 / Math.max(seconds, 1e-9)));
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + filePath, e);
+        } finally {
+            executor.close();
+        }
+        PointLineScanner.logErrorSummary(errorCount.get(), loggingErrorCount);
+        return sinks;
+    }
+
+    /**
+     * Reader stage. Fills blocks and passes them on, cutting each one after its
+     * last line terminator and carrying the remainder over to the next block.
+     *
+     * @return The number of bytes read.
+     */
+    private long read(String filePath, BlockingQueue<Block> free, BlockingQueue<Block> filled, int workers)
+            throws IOException, InterruptedException {
+        long fileOffset = 0;
+        int headerLines = config.inputSkipHeaderLines();
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            Block block = free.take();
+            block.length = 0;
+            boolean eof = false;
+            while (!eof) {
+                ByteBuffer buffer = ByteBuffer.wrap(block.data, block.length, block.data.length - block.length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                int filledTo = buffer.position();
+                int cut = eof ? filledTo : lastLineEnd(block.data, filledTo);
+                if (cut < 0)
+                    throw new IOException(String.format("(%s, offset %d): Line longer than pipeline block size of %d bytes",
+                            passName, block.fileOffset, block.data.length));
+                Block next = eof ? null : free.take();
+                if (next != null) {
+                    next.length = filledTo - cut;
+                    next.fileOffset = block.fileOffset + cut;
+                    System.arraycopy(block.data, cut, next.data, 0, next.length);
+                }
+                block.start = 0;
+                block.length = cut;
+                // Header lines are dropped by the reader so parsers never see them.
+                while (headerLines > 0 && block.start < block.length) {
+                    int nl = indexOf(block.data, (byte) '\n', block.start, block.length);
+                    block.start = nl < 0 ? block.length : nl + 1;
+                    headerLines--;
+                }
+                fileOffset = block.fileOffset + block.length;
+                filled.put(block);
+                block = next;
+            }
+        } finally {
+            for (int i = 0; i < workers; i++)
+                filled.put(POISON);
+        }
+        return fileOffset;
+    }
+
+    /**
+     * Parser stage. Parses every line of each block into its sink and returns
+     * the block to the free queue.
+     *
+     * @return The number of points accepted by the sink.
+     */
+    private long parse(BlockingQueue<Block> filled, BlockingQueue<Block> free, PointSink sink)
+            throws InterruptedException {
+        long accepted = 0;
+        RuntimeException failure = null;
+        Block block;
+        while ((block = filled.take()) != POISON) {
+            // A failed worker keeps recycling blocks until the end so the reader
+            // never waits on an empty free queue.
+            if (failure == null) {
+                try {
+                    accepted += parseBlock(block, sink);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            free.put(block);
+        }
+        if (failure != null)
+            throw failure;
+        return accepted;
+    }
+
+    private long parseBlock(Block block, PointSink sink) {
+        long accepted = 0;
+        byte[] data = block.data;
+        int pos = block.start;
+        while (pos < block.length) {
+            int nl = indexOf(data, (byte) '\n', pos, block.length);
+            int lineEnd = nl < 0 ? block.length : nl;
+            int lineStart = pos;
+            pos = lineEnd + 1;
+            while (lineStart < lineEnd && (data[lineStart] & 0xff) <= ' ')
+                lineStart++;
+            while (lineEnd > lineStart && (data[lineEnd - 1] & 0xff) <= ' ')
+                lineEnd--;
+            if (lineStart == lineEnd)
+                continue;
+            double lat, lon;
+            try {
+                if (byteDelimiter) {
+                    lat = parseColumn(data, lineStart, lineEnd, delimiter, config.latColumn());
+                    lon = parseColumn(data, lineStart, lineEnd, delimiter, config.longColumn());
+                } else {
+                    String[] parts = new String(data, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8)
+                            .split(config.inputDelimiter());
+                    lat = Double.parseDouble(parts[config.latColumn()].trim());
+                    lon = Double.parseDouble(parts[config.longColumn()].trim());
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                reportError("Skipping invalid line", block.fileOffset + lineStart,
+                        new String(data, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+                continue;
+            }
+            if (sink.accept(lat, lon))
+                accepted++;
+            else
+                reportError(rejectMessage, block.fileOffset + lineStart, "Lat: " + lat + ", Lon: " + lon);
+        }
+        return accepted;
+    }
+
+    private void reportError(String message, long offset, String detail) {
+        if (errorCount.getAndIncrement() < loggingErrorCount)
+            logger.warn("({}, offset {}): {} ({})", passName, offset, message, detail);
+    }
+
+    /**
+     * Parses column {@code column} of the line {@code [start, end)} without
+     * splitting the whole line.
+     *
+     * @throws ArrayIndexOutOfBoundsException If the line has too few columns.
+     */
+    private static double parseColumn(byte[] data, int start, int end, byte delimiter, int column) {
+        int fieldStart = start;
+        for (int i = 0; i < column; i++) {
+            int next = indexOf(data, delimiter, fieldStart, end);
+            if (next < 0)
+                throw new ArrayIndexOutOfBoundsException(column);
+            fieldStart = next + 1;
+        }
+        int fieldEnd = indexOf(data, delimiter, fieldStart, end);
+        if (fieldEnd < 0)
+            fieldEnd = end;
+        return Double.parseDouble(new String(data, fieldStart, fieldEnd - fieldStart, StandardCharsets.ISO_8859_1)
+                .trim());
+    }
+
+    private static int indexOf(byte[] data, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value)
+                return i;
+        }
+        return -1;
+    }
+
+    private static int lastLineEnd(byte[] data, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (data[i] == '\n')
+                return i + 1;
+        }
+        return -1;
+    }
+
+    /** A reusable chunk of the file holding whole lines in {@code [start, length)}. */
+    private static final class Block {
+        final byte[] data;
+        int start;
+        int length;
+        long fileOffset;
+
+        Block(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
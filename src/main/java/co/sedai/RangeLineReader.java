@@ -0,0 +1,131 @@
+package co.sedai;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a file that start within a byte range
+ * {@code [start, end)}.
+ * <p>
+ * A line belongs to the range in which its first byte lies, so splitting a file
+ * into adjacent ranges and reading each one visits every line exactly once. If
+ * {@code start} falls in the middle of a line, that partial line is skipped
+ * (it belongs to the previous range); the last line of the range is read past
+ * {@code end} up to its terminator.
+ * <p>
+ * The file is read in chunks into one reusable buffer that is scanned for line
+ * terminators; each line is decoded straight from its slice of the buffer. A
+ * line crossing the end of the buffer is moved to the front before the next
+ * chunk is read, and the buffer only grows for a line longer than itself.
+ */
+final class RangeLineReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long end;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    /** Next unread byte of {@link #buffer}. */
+    private int pos;
+    /** End of the bytes read into {@link #buffer}. */
+    private int limit;
+    private boolean eof;
+    /** File offset of {@code buffer[pos]}. */
+    private long position;
+
+    /**
+     * @param filePath The file to read.
+     * @param start    Offset of the first byte of the range (inclusive).
+     * @param end      Offset of the end of the range (exclusive); use
+     *                 {@link Long#MAX_VALUE} to read to the end of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    RangeLineReader(String filePath, long start, long end) throws IOException {
+        this.channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+        this.end = end;
+        long seek = Math.max(0, start - 1);
+        channel.position(seek);
+        this.position = seek;
+        if (start > 0) {
+            // Skip the tail of a line that started in the previous range, unless the
+            // byte before the range is a line terminator.
+            int lineEnd = findLineEnd();
+            advance(lineEnd < 0 ? limit : lineEnd + 1);
+        }
+    }
+
+    /**
+     * @return The next line starting inside the range without its terminator, or
+     *         {@code null} once the range is exhausted.
+     * @throws IOException If an error occurs reading the file.
+     */
+    String readLine() throws IOException {
+        if (position >= end)
+            return null;
+        int lineEnd = findLineEnd();
+        int next = lineEnd + 1;
+        if (lineEnd < 0) {
+            if (pos == limit)
+                return null;
+            lineEnd = limit;
+            next = limit;
+        }
+        int length = lineEnd - pos;
+        if (length > 0 && buffer[lineEnd - 1] == '\r')
+            length--;
+        String line = new String(buffer, pos, length, StandardCharsets.UTF_8);
+        advance(next);
+        return line;
+    }
+
+    private void advance(int next) {
+        position += next - pos;
+        pos = next;
+    }
+
+    /**
+     * @return The index in {@link #buffer} of the next {@code '\n'} at or after
+     *         {@link #pos}, reading more of the file as needed, or -1 if the
+     *         file ends first.
+     */
+    private int findLineEnd() throws IOException {
+        int from = pos;
+        while (true) {
+            for (int i = from; i < limit; i++) {
+                if (buffer[i] == '\n')
+                    return i;
+            }
+            if (eof)
+                return -1;
+            int scanned = limit - pos;
+            fill();
+            from = pos + scanned;
+        }
+    }
+
+    /** Moves the unread bytes to the front and reads the next chunk behind them. */
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+        if (read < 0)
+            eof = true;
+        else
+            limit += read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -3,12 +3,14 @@ package co.sedai;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.time.Instant;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import co.sedai.model.Bounds;
 import co.sedai.model.Config;
+import co.sedai.model.TimeWindows;
 
 /**
  * Utility class responsible for rendering a 2D data grid (representing point
@@ -25,6 +27,7 @@ public final class RenderAsciiMap {
     private long[][] grid;
     private Config config;
     private Bounds bounds;
+    private long scaleMax;
 
     /**
      * Renders the provided data grid as a formatted ASCII map, logging the result.
@@ -57,9 +60,18 @@ public final class RenderAsciiMap {
      */
 
     RenderAsciiMap(long[][] grid, Config config, Bounds bounds) {
+        this(grid, config, bounds, 0);
+    }
+
+    /**
+     * @param scaleMax The count mapped to the densest character, e.g. shared by
+     *                 all frames of an animation; 0 uses the grid's own maximum.
+     */
+    RenderAsciiMap(long[][] grid, Config config, Bounds bounds, long scaleMax) {
         this.grid = grid;
         this.config = config;
         this.bounds = bounds;
+        this.scaleMax = scaleMax;
     }
 
     public void renderOutputAsciiMap(boolean htmlEnabled) throws IOException {
@@ -79,18 +91,26 @@ public final class RenderAsciiMap {
     }
 
     private String renderMap() {
-        long maxCount = 0;
+        String map = buildMap();
+        logger.info("{}", map);
+        return map;
+    }
+
+    private String buildMap() {
+        long maxCount = scaleMax;
         int mapHeight = config.mapHeight();
         int mapWidth = config.mapWidth();
         char[] densityChars = config.renderDensityChars();
-        for (int y = 0; y < mapHeight; y++) {
-            for (int x = 0; x < mapWidth; x++) {
-                maxCount = Math.max(maxCount, grid[y][x]);
+        if (maxCount == 0) {
+            for (int y = 0; y < mapHeight; y++) {
+                for (int x = 0; x < mapWidth; x++) {
+                    maxCount = Math.max(maxCount, grid[y][x]);
+                }
+            }
+            logger.info("Max points per cell: {}", maxCount);
+            if (maxCount == 0 && bounds.pointCount() == 0) {
+                logger.error("(Map is empty or no points fell within the fixed bounds)");
             }
-        }
-        logger.info("Max points per cell: {}", maxCount);
-        if (maxCount == 0 && bounds.pointCount() == 0) {
-            logger.error("(Map is empty or no points fell within the fixed bounds)");
         }
 
         StringBuilder mapBuilder = new StringBuilder(mapHeight * mapWidth + mapWidth * 4 + 200);
@@ -140,10 +160,119 @@ public final class RenderAsciiMap {
             }
         } else if (maxCount == 1 && densityChars.length > 1)
             mapBuilder.append(String.format(" '%c': 1", densityChars[1]));
-        logger.info("{}", mapBuilder.toString());
         return mapBuilder.toString();
     }
 
+    /**
+     * Renders one frame per time window, all scaled to the densest cell of any
+     * window so frames can be compared.
+     * <p>
+     * With HTML output enabled the frames are written according to
+     * {@link Config#timeFrameOutput()}: {@code html} writes a single page that
+     * plays the frames, {@code files} writes one page per frame, numbered by
+     * {@link #framePath(String, int)}. Otherwise every frame is logged. Either
+     * way each frame is rendered, written and dropped before the next one, so
+     * only one frame's text is held in memory at a time.
+     *
+     * @param windows The per-window grids.
+     * @param config  The application configuration.
+     * @param bounds  The bounds shared by all windows.
+     * @throws IOException If an HTML file cannot be written.
+     */
+    static void renderFrames(TimeWindows windows, Config config, Bounds bounds) throws IOException {
+        long maxCount = Math.max(1, windows.maxCount());
+        logger.info("Rendering {} frames, max points per cell: {}", windows.size(), maxCount);
+        if (!config.htmlEnabled()) {
+            for (int i = 0; i < windows.size(); i++)
+                logger.info("Frame {} ({}):{}", i + 1, frameLabel(windows, i),
+                        new RenderAsciiMap(windows.grids().get(i), config, bounds, maxCount).buildMap());
+            return;
+        }
+        if (config.timeFrameOutput().equals("files")) {
+            for (int i = 0; i < windows.size(); i++) {
+                String frame = new RenderAsciiMap(windows.grids().get(i), config, bounds, maxCount).buildMap();
+                writeHtml(framePath(config.htmlFilePath(), i), renderHtmlPage(frameLabel(windows, i),
+                        "  <pre>\n" + escapeHtml(frame) + "  </pre>\n", ""));
+            }
+            return;
+        }
+        String htmlFilePath = config.htmlFilePath();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(htmlFilePath))) {
+            writer.write(htmlHead(windows.size() + " time windows"));
+            writer.write("  <p><button id=\"play\">Pause</button>\n");
+            writer.write("  <input id=\"slider\" type=\"range\" min=\"0\" max=\"" + (windows.size() - 1)
+                    + "\" value=\"0\">\n");
+            writer.write("  <span id=\"label\"></span></p>\n");
+            for (int i = 0; i < windows.size(); i++) {
+                String frame = new RenderAsciiMap(windows.grids().get(i), config, bounds, maxCount).buildMap();
+                writer.write("  <pre class=\"frame\" data-label=\"" + escapeHtml(frameLabel(windows, i))
+                        + (i == 0 ? "\">" : "\" hidden>") + escapeHtml(frame) + "</pre>\n");
+            }
+            writer.write(ANIMATION_SCRIPT);
+            writer.write(HTML_END);
+            logger.info("Successfully wrote HTML map to {}", htmlFilePath);
+        } catch (IOException e) {
+            logger.error("Error writing HTML output file {}: {}", htmlFilePath, e.getMessage());
+            throw e;
+        }
+    }
+
+    private static String frameLabel(TimeWindows windows, int index) {
+        return Instant.ofEpochMilli(windows.windowStart(index)) + " - "
+                + Instant.ofEpochMilli(windows.windowStart(index) + windows.windowMillis());
+    }
+
+    /**
+     * @return {@code path} with the zero-padded frame number inserted before the
+     *         file extension, e.g. {@code map-0003.html}.
+     */
+    static String framePath(String path, int frame) {
+        int dot = path.lastIndexOf('.');
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        String suffix = String.format("-%04d", frame);
+        if (dot <= slash)
+            return path + suffix;
+        return path.substring(0, dot) + suffix + path.substring(dot);
+    }
+
+    private static void writeHtml(String htmlFilePath, String html) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(htmlFilePath))) {
+            writer.write(html);
+            logger.info("Successfully wrote HTML map to {}", htmlFilePath);
+        } catch (IOException e) {
+            logger.error("Error writing HTML output file {}: {}", htmlFilePath, e.getMessage());
+            throw e;
+        }
+    }
+
+    private static final String ANIMATION_SCRIPT = """
+              <script>
+                const frames = document.querySelectorAll('pre.frame');
+                const slider = document.getElementById('slider');
+                const label = document.getElementById('label');
+                const play = document.getElementById('play');
+                let current = 0;
+                let timer = null;
+                function show(i) {
+                  frames[current].hidden = true;
+                  current = i;
+                  frames[current].hidden = false;
+                  slider.value = i;
+                  label.textContent = frames[i].dataset.label;
+                }
+                function start() {
+                  timer = setInterval(() => show((current + 1) % frames.length), 500);
+                  play.textContent = 'Pause';
+                }
+                play.onclick = () => {
+                  if (timer) { clearInterval(timer); timer = null; play.textContent = 'Play'; } else start();
+                };
+                slider.oninput = () => show(Number(slider.value));
+                show(0);
+                start();
+              </script>
+            """;
+
     /**
      * Selects the appropriate character from the density character array to
      * represent
@@ -177,12 +306,29 @@ public final class RenderAsciiMap {
     static char getDensityChar(long count, long maxCount, char[] densityChars) {
         if (count <= 0)
             return ' ';
-        int numLevels = densityChars.length - 1;
+        return densityChars[densityLevel(count, maxCount, densityChars.length - 1)];
+    }
+
+    /**
+     * Scales a cell count to a density level, the index used by
+     * {@link #getDensityChar(long, long, char[])}. Shared with
+     * {@link RenderRasterMap}, which uses 255 levels instead of one per
+     * character.
+     *
+     * @param count     The count value for the specific grid cell.
+     * @param maxCount  The maximum count found in any cell of the grid.
+     * @param numLevels The number of levels for non-empty cells.
+     * @return 0 if {@code count <= 0}, otherwise a level in
+     *         {@code [1, numLevels]}.
+     */
+    static int densityLevel(long count, long maxCount, int numLevels) {
+        if (count <= 0)
+            return 0;
         // Handle case where there are points, but maxCount is somehow zero (shouldn't
         // happen if count > 0)
-        // or if maxCount is 1. Use the first density level character (index 1).
+        // or if maxCount is 1. Use the first density level (index 1).
         if (maxCount <= 0)
-            return densityChars[1];
+            return 1;
         // Calculate the density fraction (0.0 to 1.0]
         double fraction = (double) count / maxCount;
         // Scale the fraction to the number of available density levels and find the
@@ -192,12 +338,26 @@ public final class RenderAsciiMap {
         int index = (int) Math.ceil(fraction * numLevels);
         // Clamp the index to be within the valid range of density characters [1,
         // numLevels]
-        index = Math.max(1, Math.min(numLevels, index));
-
-        return densityChars[index];
+        return Math.max(1, Math.min(numLevels, index));
     }
 
     private String renderHtmlMap(String mapContent) {
+        return renderHtmlPage(null, "  <pre>\n" + escapeHtml(mapContent) + "  </pre>\n", "");
+    }
+
+    /**
+     * @param subtitle Shown below the heading if not {@code null}.
+     * @param body     Already escaped page content.
+     * @param script   Script markup appended to the body.
+     */
+    private static final String HTML_END = "</body>\n</html>\n";
+
+    private static String renderHtmlPage(String subtitle, String body, String script) {
+        return htmlHead(subtitle) + body + script + HTML_END;
+    }
+
+    /** @return The page up to and including the headings, before the body. */
+    private static String htmlHead(String subtitle) {
         StringBuilder htmlBuilder = new StringBuilder();
         htmlBuilder.append("<!DOCTYPE html>\n");
         htmlBuilder.append("<html lang=\"en\">\n");
@@ -219,13 +379,9 @@ public final class RenderAsciiMap {
         htmlBuilder.append("</head>\n");
         htmlBuilder.append("<body>\n");
         htmlBuilder.append("  <h1>ASCII Density Map</h1>\n");
-        htmlBuilder.append("  <pre>\n");
-        htmlBuilder.append(escapeHtml(mapContent)); // Escape HTML special characters
-        htmlBuilder.append("  </pre>\n");
-        htmlBuilder.append("</body>\n");
-        htmlBuilder.append("</html>\n");
+        if (subtitle != null)
+            htmlBuilder.append("  <h2>").append(escapeHtml(subtitle)).append("</h2>\n");
         return htmlBuilder.toString();
-
     }
 
     private static String escapeHtml(String text) {
@@ -0,0 +1,481 @@
+package co.sedai;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+
+/**
+ * Writes the density map as a pyramid of {@code z/x/y.png} tiles over the
+ * {@link Bounds}, for zoom levels 0 to {@link Config#tilesMaxZoom()}, plus a
+ * static {@value #VIEWER_FILE} to browse them.
+ * <p>
+ * At zoom {@code z} the bounds are split into {@code 2^z x 2^z} tiles of
+ * {@link Config#tileSize()} cells each, row {@code y = 0} at the north edge.
+ * The input is scanned once: every point is binned to its cell at the maximum
+ * zoom and encoded as a Morton (Z-order) key, which interleaves the bits of
+ * the cell's column and row. Sorted, those keys form a quadtree: all cells of
+ * one tile are contiguous, at every zoom, and the parent of a cell is its key
+ * shifted right by two bits. Each coarser zoom is therefore one merge over the
+ * previous one, and memory grows with the number of points rather than the
+ * number of tiles; empty tiles are never materialized or written.
+ * <p>
+ * The tiles of a zoom are written in parallel on the common
+ * {@link ForkJoinPool}, each scaled to the largest count at that zoom. A hash
+ * of every tile's pixels is kept in {@value #INDEX_FILE}; a later run into
+ * the same directory only rewrites tiles whose pixels changed and removes the
+ * ones that became empty.
+ */
+public final class RenderMapTiles {
+    static final Logger logger = LoggerFactory.getLogger(RenderMapTiles.class);
+
+    /** Bits per axis of a cell coordinate at the maximum zoom. */
+    static final int MAX_CELL_BITS = 30;
+    static final String INDEX_FILE = "tiles.idx";
+    static final String VIEWER_FILE = "viewer.html";
+    /** Tiles written by one leaf task. */
+    private static final int TILES_PER_TASK = 8;
+
+    private final Config config;
+    private final Bounds bounds;
+    private final Path directory;
+    private final int tileBits;
+    private final int cellBits;
+
+    /**
+     * Number of tiles of a run and what happened to them.
+     *
+     * @param tiles     Non-empty tiles over all zoom levels.
+     * @param written   Tiles that were new or changed.
+     * @param unchanged Tiles left as they were.
+     * @param removed   Tiles of the previous run that are now empty.
+     */
+    record TileSummary(int tiles, int written, int unchanged, int removed) {
+    }
+
+    public RenderMapTiles(Config config, Bounds bounds) {
+        this.config = config;
+        this.bounds = bounds;
+        this.directory = Path.of(config.tilesDirectory());
+        this.tileBits = Integer.numberOfTrailingZeros(config.tileSize());
+        this.cellBits = config.tilesMaxZoom() + tileBits;
+    }
+
+    /**
+     * Bins the points of {@link Config#filePath()} in one pipelined scan and
+     * writes the tiles.
+     *
+     * @throws IOException If the input cannot be read or a tile cannot be
+     *                     written.
+     */
+    public TileSummary render() throws IOException {
+        logger.info("Binning points for {} zoom levels...", config.tilesMaxZoom() + 1);
+        List<KeySink> sinks = new PointPipeline(config, "Tiles", "Skipping point outside fixed bounds")
+                .run(config.filePath(), KeySink::new);
+        int size = 0;
+        for (KeySink sink : sinks)
+            size = Math.addExact(size, sink.size);
+        long[] keys = new long[size];
+        int offset = 0;
+        for (KeySink sink : sinks) {
+            System.arraycopy(sink.keys, 0, keys, offset, sink.size);
+            offset += sink.size;
+            sink.keys = null;
+        }
+        return render(keys);
+    }
+
+    /**
+     * Bins points already held in memory and writes the tiles.
+     *
+     * @throws IOException If a tile cannot be written.
+     */
+    public TileSummary render(PointCache cache) throws IOException {
+        logger.info("Binning {} cached points for {} zoom levels...", cache.size(), config.tilesMaxZoom() + 1);
+        double[] lats = cache.lats();
+        double[] lons = cache.lons();
+        long[] keys = new long[cache.size()];
+        Arrays.parallelSetAll(keys, i -> cellKey(lats[i], lons[i]));
+        return render(keys);
+    }
+
+    /**
+     * @param keys Cell keys at the maximum zoom, one per point; negative keys
+     *             (points outside the bounds) are ignored. Sorted in place.
+     */
+    private TileSummary render(long[] keys) throws IOException {
+        Arrays.parallelSort(keys);
+        Cells cells = Cells.count(keys);
+        logger.info("{} points in {} non-empty cells at zoom {}", cells.points(), cells.size, config.tilesMaxZoom());
+
+        Files.createDirectories(directory);
+        Map<String, Long> previous = readIndex();
+        Map<String, Long> current = new ConcurrentHashMap<>();
+        AtomicInteger written = new AtomicInteger();
+        for (int zoom = config.tilesMaxZoom(); zoom >= 0; zoom--) {
+            if (zoom < config.tilesMaxZoom())
+                cells.coarsen();
+            Zoom level = new Zoom(zoom, cells, previous, current, written);
+            try {
+                ForkJoinPool.commonPool().invoke(new TileTask(level, 0, level.tiles()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            logger.debug("Zoom {}: {} tiles, max count {}", zoom, level.tiles(), level.maxCount);
+        }
+
+        int removed = 0;
+        for (String tile : previous.keySet()) {
+            if (!current.containsKey(tile) && Files.deleteIfExists(tilePath(tile)))
+                removed++;
+        }
+        writeIndex(current);
+        writeViewer();
+        TileSummary summary = new TileSummary(current.size(), written.get(), current.size() - written.get(),
+                removed);
+        logger.info("Successfully wrote {} of {} tiles to {} ({} unchanged, {} removed), view {}", summary.written(),
+                summary.tiles(), directory, summary.unchanged(), summary.removed(), directory.resolve(VIEWER_FILE));
+        return summary;
+    }
+
+    /**
+     * @return The Morton key of the point's cell at the maximum zoom, or -1 if
+     *         the point lies outside the bounds.
+     */
+    long cellKey(double lat, double lon) {
+        if (!(lat >= bounds.minLat() && lat <= bounds.maxLat() && lon >= bounds.minLon() && lon <= bounds.maxLon()))
+            return -1;
+        return interleave(cell(lon - bounds.minLon(), bounds.maxLon() - bounds.minLon()),
+                cell(bounds.maxLat() - lat, bounds.maxLat() - bounds.minLat()));
+    }
+
+    /** Same mapping as the grid: points on a zero range go to the middle cell. */
+    private int cell(double offset, double range) {
+        int cells = 1 << cellBits;
+        if (range == 0.0)
+            return cells / 2;
+        return (int) Math.max(0, Math.min(cells - 1, (long) (offset / range * cells)));
+    }
+
+    static long interleave(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static long spread(long v) {
+        v &= 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        return (v | (v << 1)) & 0x5555555555555555L;
+    }
+
+    /** @return The even bits of {@code v}, i.e. the column of a Morton key. */
+    static int compact(long v) {
+        v &= 0x5555555555555555L;
+        v = (v | (v >>> 1)) & 0x3333333333333333L;
+        v = (v | (v >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+        return (int) ((v | (v >>> 16)) & 0xFFFFFFFFL);
+    }
+
+    /** Sorted distinct cell keys of one zoom level with their counts. */
+    private static final class Cells {
+        long[] keys;
+        long[] counts;
+        int size;
+
+        static Cells count(long[] sorted) {
+            int first = 0;
+            while (first < sorted.length && sorted[first] < 0)
+                first++;
+            int distinct = 0;
+            for (int i = first; i < sorted.length; i++)
+                if (i == first || sorted[i] != sorted[i - 1])
+                    distinct++;
+            Cells cells = new Cells();
+            cells.keys = new long[distinct];
+            cells.counts = new long[distinct];
+            for (int i = first; i < sorted.length; i++) {
+                if (i == first || sorted[i] != sorted[i - 1])
+                    cells.keys[cells.size++] = sorted[i];
+                cells.counts[cells.size - 1]++;
+            }
+            return cells;
+        }
+
+        long points() {
+            long points = 0;
+            for (int i = 0; i < size; i++)
+                points += counts[i];
+            return points;
+        }
+
+        /** Merges every 2x2 block of cells into its parent, in place; the keys stay sorted. */
+        void coarsen() {
+            int out = 0;
+            for (int i = 0; i < size; i++) {
+                long key = keys[i] >>> 2;
+                if (out > 0 && keys[out - 1] == key) {
+                    counts[out - 1] += counts[i];
+                } else {
+                    keys[out] = key;
+                    counts[out++] = counts[i];
+                }
+            }
+            size = out;
+        }
+    }
+
+    /** The tiles of one zoom level: {@code starts[t]} is the first cell of tile {@code t}. */
+    private final class Zoom {
+        final int zoom;
+        final Cells cells;
+        final int[] starts;
+        final long maxCount;
+        final Map<String, Long> previous;
+        final Map<String, Long> current;
+        final AtomicInteger written;
+
+        Zoom(int zoom, Cells cells, Map<String, Long> previous, Map<String, Long> current, AtomicInteger written) {
+            this.zoom = zoom;
+            this.cells = cells;
+            this.previous = previous;
+            this.current = current;
+            this.written = written;
+            int shift = 2 * tileBits;
+            int[] starts = new int[16];
+            int tiles = 0;
+            long maxCount = 0;
+            for (int i = 0; i < cells.size; i++) {
+                if (i == 0 || cells.keys[i] >>> shift != cells.keys[i - 1] >>> shift) {
+                    if (tiles + 1 == starts.length)
+                        starts = Arrays.copyOf(starts, starts.length * 2);
+                    starts[tiles++] = i;
+                }
+                maxCount = Math.max(maxCount, cells.counts[i]);
+            }
+            starts[tiles] = cells.size;
+            this.starts = Arrays.copyOf(starts, tiles + 1);
+            this.maxCount = maxCount;
+        }
+
+        int tiles() {
+            return starts.length - 1;
+        }
+
+        /**
+         * @param grid All-zero scratch grid of the calling task, or {@code null}
+         *             to allocate one if the tile has to be drawn.
+         * @return The scratch grid, all-zero again, for the task's next tile.
+         */
+        long[][] writeTile(int tile, long[][] grid) throws IOException {
+            int from = starts[tile];
+            int to = starts[tile + 1];
+            long tileKey = cells.keys[from] >>> (2 * tileBits);
+            String name = zoom + "/" + compact(tileKey) + "/" + compact(tileKey >>> 1);
+            long cellMask = (1L << (2 * tileBits)) - 1;
+
+            long hash = mix(mix(mix(0, config.tileSize()), config.rasterCellSize()), config.rasterPalette().hashCode());
+            for (int i = from; i < to; i++)
+                hash = mix(mix(hash, cells.keys[i] & cellMask),
+                        RenderAsciiMap.densityLevel(cells.counts[i], maxCount, RenderRasterMap.LEVELS));
+            current.put(name, hash);
+            Path path = tilePath(name);
+            Long previousHash = previous.get(name);
+            if (previousHash != null && previousHash == hash && Files.exists(path))
+                return grid;
+
+            if (grid == null)
+                grid = new long[config.tileSize()][config.tileSize()];
+            for (int i = from; i < to; i++) {
+                long cell = cells.keys[i] & cellMask;
+                grid[compact(cell >>> 1)][compact(cell)] = cells.counts[i];
+            }
+            try {
+                Files.createDirectories(path.getParent());
+                new RenderRasterMap(grid, config, path.toString(), maxCount).writeImage();
+            } finally {
+                for (int i = from; i < to; i++) {
+                    long cell = cells.keys[i] & cellMask;
+                    grid[compact(cell >>> 1)][compact(cell)] = 0;
+                }
+            }
+            written.incrementAndGet();
+            return grid;
+        }
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static final class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Zoom zoom;
+        private final int from;
+        private final int to;
+
+        TileTask(Zoom zoom, int from, int to) {
+            this.zoom = zoom;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TILES_PER_TASK) {
+                // The scratch grid lives only as long as the leaf, so no grid stays
+                // behind on the pool's threads.
+                long[][] grid = null;
+                try {
+                    for (int tile = from; tile < to; tile++)
+                        grid = zoom.writeTile(tile, grid);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(zoom, from, mid), new TileTask(zoom, mid, to));
+        }
+    }
+
+    /** Per-worker cell keys of the pipelined scan. */
+    private final class KeySink implements PointPipeline.PointSink {
+        long[] keys = new long[1024];
+        int size;
+
+        @Override
+        public boolean accept(double lat, double lon) {
+            long key = cellKey(lat, lon);
+            if (key < 0)
+                return false;
+            if (size == keys.length)
+                keys = Arrays.copyOf(keys, keys.length + (keys.length >> 1));
+            keys[size++] = key;
+            return true;
+        }
+    }
+
+    private Path tilePath(String name) {
+        String[] parts = name.split("/");
+        return directory.resolve(parts[0]).resolve(parts[1]).resolve(parts[2] + ".png");
+    }
+
+    private Map<String, Long> readIndex() throws IOException {
+        Map<String, Long> index = new HashMap<>();
+        Path path = directory.resolve(INDEX_FILE);
+        if (!Files.exists(path))
+            return index;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] parts = line.trim().split(" ");
+            if (parts.length != 2 || line.startsWith("#"))
+                continue;
+            try {
+                index.put(parts[0], Long.parseUnsignedLong(parts[1], 16));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring malformed line in {}: {}", path, line);
+            }
+        }
+        return index;
+    }
+
+    private void writeIndex(Map<String, Long> index) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8)) {
+            writer.write("# z/x/y pixel-hash\n");
+            for (Map.Entry<String, Long> entry : new TreeMap<>(index).entrySet())
+                writer.write(entry.getKey() + " " + Long.toHexString(entry.getValue()) + "\n");
+        }
+    }
+
+    private void writeViewer() throws IOException {
+        String html = """
+                <!DOCTYPE html>
+                <html lang="en">
+                <head>
+                  <meta charset="UTF-8">
+                  <title>Density Map Tiles</title>
+                  <style>
+                    body { font-family: sans-serif; margin: 20px; }
+                    #map { position: relative; overflow: hidden; width: 768px; height: 768px;
+                           border: 1px solid #ccc; background: #fff; cursor: grab; }
+                    #map img { position: absolute; image-rendering: pixelated; }
+                  </style>
+                </head>
+                <body>
+                  <h1>Density Map Tiles</h1>
+                  <p><button id="out">-</button> <button id="in">+</button>
+                  <span id="label"></span></p>
+                  <div id="map"></div>
+                  <script>
+                    const maxZoom = %d, tilePixels = %d;
+                    const bounds = { minLat: %s, maxLat: %s, minLon: %s, maxLon: %s };
+                    const map = document.getElementById('map');
+                    const label = document.getElementById('label');
+                    let zoom = 0, centerX = 0.5, centerY = 0.5, drag = null;
+                    function draw() {
+                      const world = tilePixels * 2 ** zoom;
+                      const left = centerX * world - map.clientWidth / 2;
+                      const top = centerY * world - map.clientHeight / 2;
+                      const tiles = 2 ** zoom;
+                      map.replaceChildren();
+                      for (let y = Math.max(0, Math.floor(top / tilePixels));
+                           y < Math.min(tiles, Math.ceil((top + map.clientHeight) / tilePixels)); y++) {
+                        for (let x = Math.max(0, Math.floor(left / tilePixels));
+                             x < Math.min(tiles, Math.ceil((left + map.clientWidth) / tilePixels)); x++) {
+                          const img = new Image(tilePixels, tilePixels);
+                          img.onerror = () => img.remove();
+                          img.style.left = (x * tilePixels - left) + 'px';
+                          img.style.top = (y * tilePixels - top) + 'px';
+                          img.src = zoom + '/' + x + '/' + y + '.png';
+                          map.appendChild(img);
+                        }
+                      }
+                      const lat = bounds.maxLat - centerY * (bounds.maxLat - bounds.minLat);
+                      const lon = bounds.minLon + centerX * (bounds.maxLon - bounds.minLon);
+                      label.textContent = 'Zoom ' + zoom + ' of ' + maxZoom + ', centre '
+                          + lat.toFixed(4) + ', ' + lon.toFixed(4);
+                    }
+                    function setZoom(z) { zoom = Math.max(0, Math.min(maxZoom, z)); draw(); }
+                    document.getElementById('in').onclick = () => setZoom(zoom + 1);
+                    document.getElementById('out').onclick = () => setZoom(zoom - 1);
+                    map.onwheel = e => { e.preventDefault(); setZoom(zoom + (e.deltaY < 0 ? 1 : -1)); };
+                    map.onpointerdown = e => { drag = { x: e.clientX, y: e.clientY }; map.setPointerCapture(e.pointerId); };
+                    map.onpointerup = () => { drag = null; };
+                    map.onpointermove = e => {
+                      if (!drag) return;
+                      const world = tilePixels * 2 ** zoom;
+                      centerX = Math.max(0, Math.min(1, centerX - (e.clientX - drag.x) / world));
+                      centerY = Math.max(0, Math.min(1, centerY - (e.clientY - drag.y) / world));
+                      drag = { x: e.clientX, y: e.clientY };
+                      draw();
+                    };
+                    draw();
+                  </script>
+                </body>
+                </html>
+                """.formatted(config.tilesMaxZoom(), config.tileSize() * config.rasterCellSize(),
+                bounds.minLat(), bounds.maxLat(), bounds.minLon(), bounds.maxLon());
+        Files.writeString(directory.resolve(VIEWER_FILE), html, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,264 @@
+package co.sedai;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.model.Config;
+
+/**
+ * Writes the density grid as a raster heatmap, one square block of
+ * {@link Config#rasterCellSize()} pixels per grid cell.
+ * <p>
+ * Counts are scaled to 255 levels with the same logic as
+ * {@link RenderAsciiMap#getDensityChar(long, long, char[])}; empty cells are
+ * white. The format follows the file extension of
+ * {@link Config#rasterFilePath()}: {@code .png} (indexed colour),
+ * {@code .pgm} (binary grayscale) or {@code .ppm} (binary RGB). The image is
+ * streamed row by row, so only one row of pixels is held in memory regardless
+ * of the image size.
+ */
+public final class RenderRasterMap {
+    static final Logger logger = LoggerFactory.getLogger(RenderRasterMap.class);
+    static final int LEVELS = 255;
+    private static final int IDAT_CHUNK_SIZE = 1 << 16;
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+    private final long[][] grid;
+    private final Config config;
+    private final String path;
+    private final long scaleMax;
+
+    RenderRasterMap(long[][] grid, Config config) {
+        this(grid, config, config.rasterFilePath(), 0);
+    }
+
+    /**
+     * @param path     The file to write, overriding {@link Config#rasterFilePath()}.
+     * @param scaleMax The count mapped to the darkest colour, e.g. shared by all
+     *                 frames of an animation; 0 uses the grid's own maximum.
+     */
+    RenderRasterMap(long[][] grid, Config config, String path, long scaleMax) {
+        this.grid = grid;
+        this.config = config;
+        this.path = path;
+        this.scaleMax = scaleMax;
+    }
+
+    /**
+     * Writes the image.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public void write() throws IOException {
+        writeImage();
+        logger.info("Successfully wrote {}x{} raster map to {}", width() * config.rasterCellSize(),
+                grid.length * config.rasterCellSize(), path);
+    }
+
+    /** Writes the image without logging success, e.g. for one of many tiles. */
+    void writeImage() throws IOException {
+        long maxCount = scaleMax;
+        if (maxCount == 0)
+            for (long[] row : grid)
+                for (long cell : row)
+                    maxCount = Math.max(maxCount, cell);
+        int[] palette = palette(config.rasterPalette());
+        String extension = path.toLowerCase();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(path)), 1 << 16)) {
+            if (extension.endsWith(".png"))
+                writePng(out, maxCount, palette);
+            else if (extension.endsWith(".ppm"))
+                writeNetpbm(out, maxCount, palette, true);
+            else
+                writeNetpbm(out, maxCount, palette, false);
+        } catch (IOException e) {
+            logger.error("Error writing raster output file {}: {}", path, e.getMessage());
+            throw e;
+        }
+    }
+
+    private int width() {
+        return grid.length == 0 ? 0 : grid[0].length;
+    }
+
+    /**
+     * Fills {@code levels} with the density level of every pixel of grid row
+     * {@code y}, repeating each cell {@code cellSize} times.
+     */
+    private void levelRow(int y, long maxCount, byte[] levels, int offset) {
+        int cellSize = config.rasterCellSize();
+        long[] row = grid[y];
+        int pixel = offset;
+        for (int x = 0; x < row.length; x++) {
+            byte level = (byte) RenderAsciiMap.densityLevel(row[x], maxCount, LEVELS);
+            for (int i = 0; i < cellSize; i++)
+                levels[pixel++] = level;
+        }
+    }
+
+    private void writeNetpbm(OutputStream out, long maxCount, int[] palette, boolean rgb) throws IOException {
+        int cellSize = config.rasterCellSize();
+        int width = width() * cellSize;
+        out.write(String.format("%s\n%d %d\n255\n", rgb ? "P6" : "P5", width, grid.length * cellSize)
+                .getBytes(StandardCharsets.US_ASCII));
+        byte[] levels = new byte[width];
+        byte[] pixels = new byte[rgb ? width * 3 : width];
+        for (int y = 0; y < grid.length; y++) {
+            levelRow(y, maxCount, levels, 0);
+            for (int x = 0; x < width; x++) {
+                int color = palette[levels[x] & 0xff];
+                if (rgb) {
+                    pixels[x * 3] = (byte) (color >> 16);
+                    pixels[x * 3 + 1] = (byte) (color >> 8);
+                    pixels[x * 3 + 2] = (byte) color;
+                } else {
+                    pixels[x] = (byte) color;
+                }
+            }
+            for (int i = 0; i < cellSize; i++)
+                out.write(pixels);
+        }
+    }
+
+    /**
+     * Writes an 8-bit indexed PNG. The first scanline of each block of cells
+     * uses no filter, the repeated ones the Up filter, so they compress to
+     * almost nothing. Scanlines are buffered before the deflater, which costs a
+     * native call per write; that dominates small images such as tiles.
+     */
+    private void writePng(OutputStream out, long maxCount, int[] palette) throws IOException {
+        int cellSize = config.rasterCellSize();
+        int width = width() * cellSize;
+        out.write(PNG_SIGNATURE);
+
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, grid.length * cellSize);
+        header[8] = 8; // Bit depth
+        header[9] = 3; // Colour type: indexed
+        writeChunk(out, "IHDR", header, header.length);
+
+        byte[] colors = new byte[palette.length * 3];
+        for (int i = 0; i < palette.length; i++) {
+            colors[i * 3] = (byte) (palette[i] >> 16);
+            colors[i * 3 + 1] = (byte) (palette[i] >> 8);
+            colors[i * 3 + 2] = (byte) palette[i];
+        }
+        writeChunk(out, "PLTE", colors, colors.length);
+
+        byte[] scanline = new byte[width + 1];
+        byte[] repeated = new byte[width + 1];
+        repeated[0] = 2; // Filter: Up, all differences are zero.
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream idat = new BufferedOutputStream(new DeflaterOutputStream(new IdatOutputStream(out),
+                deflater, IDAT_CHUNK_SIZE), IDAT_CHUNK_SIZE)) {
+            for (int y = 0; y < grid.length; y++) {
+                levelRow(y, maxCount, scanline, 1);
+                idat.write(scanline);
+                for (int i = 1; i < cellSize; i++)
+                    idat.write(repeated);
+            }
+        } finally {
+            deflater.end();
+        }
+        writeChunk(out, "IEND", new byte[0], 0);
+    }
+
+    /** Cuts the compressed stream into IDAT chunks, leaving the target open. */
+    private static final class IdatOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[IDAT_CHUNK_SIZE];
+        private int size;
+
+        IdatOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (size == buffer.length)
+                flushChunk();
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (size == buffer.length)
+                    flushChunk();
+                int n = Math.min(len, buffer.length - size);
+                System.arraycopy(b, off, buffer, size, n);
+                size += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (size > 0)
+                writeChunk(out, "IDAT", buffer, size);
+            size = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushChunk();
+        }
+    }
+
+    private static void writeChunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] word = new byte[4];
+        putInt(word, 0, length);
+        out.write(word);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        putInt(word, 0, (int) crc.getValue());
+        out.write(word);
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    /**
+     * @param name {@code gray} (light to black) or {@code heat} (yellow to dark
+     *             red).
+     * @return 256 RGB colours indexed by density level; level 0 is white.
+     */
+    static int[] palette(String name) {
+        int[][] stops = name.equals("heat")
+                ? new int[][] { { 255, 255, 178 }, { 253, 141, 60 }, { 227, 26, 28 }, { 128, 0, 38 } }
+                : new int[][] { { 230, 230, 230 }, { 0, 0, 0 } };
+        int[] palette = new int[LEVELS + 1];
+        palette[0] = 0xffffff;
+        for (int level = 1; level <= LEVELS; level++) {
+            double position = (double) (level - 1) / (LEVELS - 1) * (stops.length - 1);
+            int stop = Math.min(stops.length - 2, (int) position);
+            double t = position - stop;
+            int color = 0;
+            for (int channel = 0; channel < 3; channel++) {
+                int value = (int) Math.round(stops[stop][channel] + t * (stops[stop + 1][channel] - stops[stop][channel]));
+                color = color << 8 | value;
+            }
+            palette[level] = color;
+        }
+        return palette;
+    }
+}
@@ -36,6 +36,22 @@ public class Bounds {
     }
 
 
+    /**
+     * Folds another (partial) bounds into this one, widening the extent and
+     * adding its point count. Used when bounds are computed per shard.
+     *
+     * @param other The partial bounds to merge into this instance.
+     * @return This instance, for chaining.
+     */
+    public Bounds merge(Bounds other) {
+        minLat = Math.min(minLat, other.minLat);
+        maxLat = Math.max(maxLat, other.maxLat);
+        minLon = Math.min(minLon, other.minLon);
+        maxLon = Math.max(maxLon, other.maxLon);
+        pointCount += other.pointCount;
+        return this;
+    }
+
     public boolean hasRange() {
         return isValid() && (maxLat > minLat || maxLon > minLon);
     }
@@ -1,5 +1,7 @@
 package co.sedai.model;
 
+import java.util.List;
+
 public record Config(
         String filePath,
         int mapWidth,
@@ -11,8 +13,384 @@ public record Config(
         int longColumn,
         boolean htmlEnabled,
         String htmlFilePath,
-        long errorCount
+        long errorCount,
+        Bounds fixedBounds,
+        boolean shardEnabled,
+        List<String> shardWorkers,
+        int shardLocalWorkers,
+        List<String> shardInputFiles,
+        boolean pipelineEnabled,
+        int pipelineThreads,
+        boolean pipelineVirtualThreads,
+        int pipelineBlockSize,
+        int pipelineQueueDepth,
+        boolean cachePoints,
+        double boundsTrimPercent,
+        boolean rasterEnabled,
+        String rasterFilePath,
+        int rasterCellSize,
+        String rasterPalette,
+        int timeColumn,
+        long timeWindowSeconds,
+        String timeFormat,
+        String timeFrameOutput,
+        int timeMaxWindows,
+        String smoothKernel,
+        double smoothBandwidth,
+        boolean memoryPlanner,
+        long memoryBudgetMb,
+        boolean narrowCounters,
+        boolean pipelineExplicit,
+        boolean cachePointsExplicit,
+        boolean tilesEnabled,
+        String tilesDirectory,
+        int tilesMaxZoom,
+        int tileSize
 
 ) {
 
+    /**
+     * Creates a configuration with only the core plotting settings; every other
+     * setting keeps its {@link Builder} default (all optional features off).
+     */
+    public Config(String filePath, int mapWidth, int mapHeight, String inputDelimiter,
+            int inputSkipHeaderLines, char[] renderDensityChars, int latColumn, int longColumn,
+            boolean htmlEnabled, String htmlFilePath, long errorCount) {
+        this(builder(filePath).mapWidth(mapWidth).mapHeight(mapHeight).inputDelimiter(inputDelimiter)
+                .inputSkipHeaderLines(inputSkipHeaderLines).renderDensityChars(renderDensityChars)
+                .latColumn(latColumn).longColumn(longColumn).htmlEnabled(htmlEnabled).htmlFilePath(htmlFilePath)
+                .errorCount(errorCount));
+    }
+
+    private Config(Builder b) {
+        this(b.filePath, b.mapWidth, b.mapHeight, b.inputDelimiter, b.inputSkipHeaderLines, b.renderDensityChars,
+                b.latColumn, b.longColumn, b.htmlEnabled, b.htmlFilePath, b.errorCount,
+                b.fixedBounds, b.shardEnabled, b.shardWorkers, b.shardLocalWorkers,
+                b.shardInputFiles != null ? b.shardInputFiles : List.of(b.filePath),
+                b.pipelineEnabled, b.pipelineThreads, b.pipelineVirtualThreads, b.pipelineBlockSize,
+                b.pipelineQueueDepth, b.cachePoints, b.boundsTrimPercent,
+                b.rasterEnabled, b.rasterFilePath, b.rasterCellSize, b.rasterPalette,
+                b.timeColumn, b.timeWindowSeconds, b.timeFormat, b.timeFrameOutput, b.timeMaxWindows,
+                b.smoothKernel, b.smoothBandwidth,
+                b.memoryPlanner, b.memoryBudgetMb, b.narrowCounters, b.pipelineExplicit, b.cachePointsExplicit,
+                b.tilesEnabled, b.tilesDirectory, b.tilesMaxZoom, b.tileSize);
+    }
+
+    /**
+     * @param filePath The input file; also the only shard input file unless
+     *                 {@link Builder#shardInputFiles(List)} is set.
+     * @return A builder with the defaults of {@code plotter.properties} for
+     *         the core settings and all optional features disabled.
+     */
+    public static Builder builder(String filePath) {
+        return new Builder(filePath);
+    }
+
+    /** Returns a builder initialized with every setting of this configuration. */
+    public Builder toBuilder() {
+        return new Builder(filePath).mapWidth(mapWidth).mapHeight(mapHeight).inputDelimiter(inputDelimiter)
+                .inputSkipHeaderLines(inputSkipHeaderLines).renderDensityChars(renderDensityChars)
+                .latColumn(latColumn).longColumn(longColumn).htmlEnabled(htmlEnabled).htmlFilePath(htmlFilePath)
+                .errorCount(errorCount)
+                .fixedBounds(fixedBounds).shardEnabled(shardEnabled).shardWorkers(shardWorkers)
+                .shardLocalWorkers(shardLocalWorkers).shardInputFiles(shardInputFiles)
+                .pipelineEnabled(pipelineEnabled).pipelineThreads(pipelineThreads)
+                .pipelineVirtualThreads(pipelineVirtualThreads).pipelineBlockSize(pipelineBlockSize)
+                .pipelineQueueDepth(pipelineQueueDepth).cachePoints(cachePoints).boundsTrimPercent(boundsTrimPercent)
+                .rasterEnabled(rasterEnabled).rasterFilePath(rasterFilePath).rasterCellSize(rasterCellSize)
+                .rasterPalette(rasterPalette)
+                .timeColumn(timeColumn).timeWindowSeconds(timeWindowSeconds).timeFormat(timeFormat)
+                .timeFrameOutput(timeFrameOutput).timeMaxWindows(timeMaxWindows)
+                .smoothKernel(smoothKernel).smoothBandwidth(smoothBandwidth)
+                .memoryPlanner(memoryPlanner).memoryBudgetMb(memoryBudgetMb).narrowCounters(narrowCounters)
+                .pipelineExplicit(pipelineExplicit).cachePointsExplicit(cachePointsExplicit)
+                .tilesEnabled(tilesEnabled).tilesDirectory(tilesDirectory).tilesMaxZoom(tilesMaxZoom)
+                .tileSize(tileSize);
+    }
+
+    /**
+     * Returns a copy with the execution settings chosen by the memory planner.
+     */
+    public Config withPlan(boolean pipelineEnabled, int pipelineThreads, boolean cachePoints,
+            boolean narrowCounters, int timeMaxWindows) {
+        return toBuilder().pipelineEnabled(pipelineEnabled).pipelineThreads(pipelineThreads).cachePoints(cachePoints)
+                .narrowCounters(narrowCounters).timeMaxWindows(timeMaxWindows).build();
+    }
+
+    /**
+     * Builds a {@link Config} by name instead of by position. Values are not
+     * validated here; {@code ConfigReader} validates what it reads from the
+     * properties.
+     */
+    public static final class Builder {
+        private final String filePath;
+        private int mapWidth = 100;
+        private int mapHeight = 50;
+        private String inputDelimiter = ",";
+        private int inputSkipHeaderLines = 0;
+        private char[] renderDensityChars = " .:-=+*#%@".toCharArray();
+        private int latColumn = 0;
+        private int longColumn = 1;
+        private boolean htmlEnabled = false;
+        private String htmlFilePath = "./map.html";
+        private long errorCount = 10;
+        private Bounds fixedBounds;
+        private boolean shardEnabled;
+        private List<String> shardWorkers = List.of();
+        private int shardLocalWorkers;
+        private List<String> shardInputFiles;
+        private boolean pipelineEnabled;
+        private int pipelineThreads;
+        private boolean pipelineVirtualThreads = true;
+        private int pipelineBlockSize = 1 << 20;
+        private int pipelineQueueDepth = 8;
+        private boolean cachePoints;
+        private double boundsTrimPercent;
+        private boolean rasterEnabled;
+        private String rasterFilePath = "./map.png";
+        private int rasterCellSize = 1;
+        private String rasterPalette = "gray";
+        private int timeColumn = -1;
+        private long timeWindowSeconds = 3600;
+        private String timeFormat = "epoch_seconds";
+        private String timeFrameOutput = "html";
+        private int timeMaxWindows = 1000;
+        private String smoothKernel = "none";
+        private double smoothBandwidth = 1.5;
+        private boolean memoryPlanner;
+        private long memoryBudgetMb;
+        private boolean narrowCounters;
+        private boolean pipelineExplicit;
+        private boolean cachePointsExplicit;
+        private boolean tilesEnabled;
+        private String tilesDirectory = "./tiles";
+        private int tilesMaxZoom = 6;
+        private int tileSize = 256;
+
+        private Builder(String filePath) {
+            this.filePath = filePath;
+        }
+
+        public Config build() {
+            return new Config(this);
+        }
+
+        public Builder mapWidth(int mapWidth) {
+            this.mapWidth = mapWidth;
+            return this;
+        }
+
+        public Builder mapHeight(int mapHeight) {
+            this.mapHeight = mapHeight;
+            return this;
+        }
+
+        public Builder inputDelimiter(String inputDelimiter) {
+            this.inputDelimiter = inputDelimiter;
+            return this;
+        }
+
+        public Builder inputSkipHeaderLines(int inputSkipHeaderLines) {
+            this.inputSkipHeaderLines = inputSkipHeaderLines;
+            return this;
+        }
+
+        public Builder renderDensityChars(char[] renderDensityChars) {
+            this.renderDensityChars = renderDensityChars;
+            return this;
+        }
+
+        public Builder latColumn(int latColumn) {
+            this.latColumn = latColumn;
+            return this;
+        }
+
+        public Builder longColumn(int longColumn) {
+            this.longColumn = longColumn;
+            return this;
+        }
+
+        public Builder htmlEnabled(boolean htmlEnabled) {
+            this.htmlEnabled = htmlEnabled;
+            return this;
+        }
+
+        public Builder htmlFilePath(String htmlFilePath) {
+            this.htmlFilePath = htmlFilePath;
+            return this;
+        }
+
+        public Builder errorCount(long errorCount) {
+            this.errorCount = errorCount;
+            return this;
+        }
+
+        public Builder fixedBounds(Bounds fixedBounds) {
+            this.fixedBounds = fixedBounds;
+            return this;
+        }
+
+        public Builder shardEnabled(boolean shardEnabled) {
+            this.shardEnabled = shardEnabled;
+            return this;
+        }
+
+        public Builder shardWorkers(List<String> shardWorkers) {
+            this.shardWorkers = shardWorkers;
+            return this;
+        }
+
+        public Builder shardLocalWorkers(int shardLocalWorkers) {
+            this.shardLocalWorkers = shardLocalWorkers;
+            return this;
+        }
+
+        public Builder shardInputFiles(List<String> shardInputFiles) {
+            this.shardInputFiles = shardInputFiles;
+            return this;
+        }
+
+        public Builder pipelineEnabled(boolean pipelineEnabled) {
+            this.pipelineEnabled = pipelineEnabled;
+            return this;
+        }
+
+        public Builder pipelineThreads(int pipelineThreads) {
+            this.pipelineThreads = pipelineThreads;
+            return this;
+        }
+
+        public Builder pipelineVirtualThreads(boolean pipelineVirtualThreads) {
+            this.pipelineVirtualThreads = pipelineVirtualThreads;
+            return this;
+        }
+
+        public Builder pipelineBlockSize(int pipelineBlockSize) {
+            this.pipelineBlockSize = pipelineBlockSize;
+            return this;
+        }
+
+        public Builder pipelineQueueDepth(int pipelineQueueDepth) {
+            this.pipelineQueueDepth = pipelineQueueDepth;
+            return this;
+        }
+
+        public Builder cachePoints(boolean cachePoints) {
+            this.cachePoints = cachePoints;
+            return this;
+        }
+
+        public Builder boundsTrimPercent(double boundsTrimPercent) {
+            this.boundsTrimPercent = boundsTrimPercent;
+            return this;
+        }
+
+        public Builder rasterEnabled(boolean rasterEnabled) {
+            this.rasterEnabled = rasterEnabled;
+            return this;
+        }
+
+        public Builder rasterFilePath(String rasterFilePath) {
+            this.rasterFilePath = rasterFilePath;
+            return this;
+        }
+
+        public Builder rasterCellSize(int rasterCellSize) {
+            this.rasterCellSize = rasterCellSize;
+            return this;
+        }
+
+        public Builder rasterPalette(String rasterPalette) {
+            this.rasterPalette = rasterPalette;
+            return this;
+        }
+
+        public Builder timeColumn(int timeColumn) {
+            this.timeColumn = timeColumn;
+            return this;
+        }
+
+        public Builder timeWindowSeconds(long timeWindowSeconds) {
+            this.timeWindowSeconds = timeWindowSeconds;
+            return this;
+        }
+
+        public Builder timeFormat(String timeFormat) {
+            this.timeFormat = timeFormat;
+            return this;
+        }
+
+        public Builder timeFrameOutput(String timeFrameOutput) {
+            this.timeFrameOutput = timeFrameOutput;
+            return this;
+        }
+
+        public Builder timeMaxWindows(int timeMaxWindows) {
+            this.timeMaxWindows = timeMaxWindows;
+            return this;
+        }
+
+        public Builder smoothKernel(String smoothKernel) {
+            this.smoothKernel = smoothKernel;
+            return this;
+        }
+
+        public Builder smoothBandwidth(double smoothBandwidth) {
+            this.smoothBandwidth = smoothBandwidth;
+            return this;
+        }
+
+        public Builder memoryPlanner(boolean memoryPlanner) {
+            this.memoryPlanner = memoryPlanner;
+            return this;
+        }
+
+        public Builder memoryBudgetMb(long memoryBudgetMb) {
+            this.memoryBudgetMb = memoryBudgetMb;
+            return this;
+        }
+
+        public Builder narrowCounters(boolean narrowCounters) {
+            this.narrowCounters = narrowCounters;
+            return this;
+        }
+
+        /**
+         * Marks {@link #pipelineEnabled(boolean)} as set by the user, so the
+         * memory planner may turn pipelining off but never on.
+         */
+        public Builder pipelineExplicit(boolean pipelineExplicit) {
+            this.pipelineExplicit = pipelineExplicit;
+            return this;
+        }
+
+        /**
+         * Marks {@link #cachePoints(boolean)} as set by the user, so the memory
+         * planner may turn caching off but never on.
+         */
+        public Builder cachePointsExplicit(boolean cachePointsExplicit) {
+            this.cachePointsExplicit = cachePointsExplicit;
+            return this;
+        }
+
+        public Builder tilesEnabled(boolean tilesEnabled) {
+            this.tilesEnabled = tilesEnabled;
+            return this;
+        }
+
+        public Builder tilesDirectory(String tilesDirectory) {
+            this.tilesDirectory = tilesDirectory;
+            return this;
+        }
+
+        public Builder tilesMaxZoom(int tilesMaxZoom) {
+            this.tilesMaxZoom = tilesMaxZoom;
+            return this;
+        }
+
+        public Builder tileSize(int tileSize) {
+            this.tileSize = tileSize;
+            return this;
+        }
+    }
 }
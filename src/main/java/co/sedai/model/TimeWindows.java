@@ -0,0 +1,43 @@
+package co.sedai.model;
+
+import java.util.List;
+
+/**
+ * Density grids of consecutive, equally long time windows, all binned against
+ * the same {@link Bounds}.
+ *
+ * @param startMillis  Start of the first window, in epoch milliseconds.
+ * @param windowMillis Length of every window, in milliseconds.
+ * @param grids        One grid per window, in time order. Windows without
+ *                     points may share a single all-zero grid. The grids are
+ *                     not copied: whoever populated them may transform them
+ *                     in place (e.g. smooth them) before rendering, provided
+ *                     an all-zero grid stays all-zero so the shared grid stays
+ *                     valid for every window using it. Anyone else must treat
+ *                     the grids as read-only.
+ */
+public record TimeWindows(long startMillis, long windowMillis, List<long[][]> grids) {
+
+    /** @return The number of windows. */
+    public int size() {
+        return grids.size();
+    }
+
+    /** @return Start of window {@code index}, in epoch milliseconds. */
+    public long windowStart(int index) {
+        return startMillis + index * windowMillis;
+    }
+
+    /**
+     * @return The highest cell count over all windows, used as the shared scale
+     *         so frames are comparable.
+     */
+    public long maxCount() {
+        long maxCount = 0;
+        for (long[][] grid : grids)
+            for (long[] row : grid)
+                for (long cell : row)
+                    maxCount = Math.max(maxCount, cell);
+        return maxCount;
+    }
+}
@@ -0,0 +1,95 @@
+package co.sedai.shard;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spawns {@link ShardWorker} processes on the local machine, bound to the
+ * loopback interface on ephemeral ports, using the same JVM and class path as
+ * the current process. Closing the pool destroys the processes.
+ */
+final class LocalWorkerPool implements Closeable {
+    static final Logger logger = LoggerFactory.getLogger(LocalWorkerPool.class);
+
+    private final List<Process> processes = new ArrayList<>();
+    private final List<InetSocketAddress> addresses = new ArrayList<>();
+
+    /**
+     * Starts {@code count} worker processes and waits until each one reports its
+     * listening port.
+     *
+     * @param count     Number of worker processes, may be 0.
+     * @param inputRoot Directory containing all input files; the workers refuse
+     *                  any other file.
+     * @throws IOException If a worker cannot be started or exits before becoming
+     *                     ready. Already started workers are destroyed.
+     */
+    LocalWorkerPool(int count, Path inputRoot) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classPath = System.getProperty("java.class.path");
+        try {
+            for (int i = 0; i < count; i++) {
+                Process process = new ProcessBuilder(java, "-cp", classPath, ShardWorker.class.getName(), "0",
+                        "127.0.0.1", inputRoot.toString())
+                        .redirectErrorStream(true)
+                        .start();
+                processes.add(process);
+                addresses.add(new InetSocketAddress("127.0.0.1", awaitPort(process, i)));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        if (count > 0)
+            logger.info("Started {} local shard workers: {}", count, addresses);
+    }
+
+    List<InetSocketAddress> addresses() {
+        return addresses;
+    }
+
+    /**
+     * Reads the worker's output until it prints its port, then keeps draining
+     * the output on a daemon thread so the worker never blocks on a full pipe.
+     */
+    private static int awaitPort(Process process, int index) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(ShardWorker.READY_PREFIX)) {
+                int port = Integer.parseInt(line.substring(ShardWorker.READY_PREFIX.length()).trim());
+                Thread drain = new Thread(() -> {
+                    try {
+                        String output;
+                        while ((output = reader.readLine()) != null)
+                            logger.debug("[worker {}] {}", index, output);
+                    } catch (IOException e) {
+                        // Worker exited.
+                    }
+                }, "shard-worker-" + index + "-output");
+                drain.setDaemon(true);
+                drain.start();
+                return port;
+            }
+            logger.debug("[worker {}] {}", index, line);
+        }
+        throw new IOException("Local shard worker " + index + " exited before reporting its port");
+    }
+
+    @Override
+    public void close() {
+        for (Process process : processes)
+            process.destroy();
+    }
+}
@@ -0,0 +1,313 @@
+package co.sedai.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.GetDatBounds;
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+import co.sedai.model.QuantileSketch;
+
+/**
+ * Coordinator side of the distributed shard mode.
+ * <p>
+ * Splits the input files into byte ranges and hands them out to
+ * {@link ShardWorker}s (spawned locally and/or reached over a socket). Each
+ * worker pulls ranges from a shared queue until it is drained, so faster
+ * workers process more ranges. Partial results are merged on the coordinator:
+ * <ol>
+ * <li>{@link #findBounds()} merges the partial {@link Bounds} of all ranges
+ * (skipped by callers when fixed bounds are configured).</li>
+ * <li>{@link #populate(Bounds)} sums the partial density grids, binned against
+ * the global bounds.</li>
+ * </ol>
+ */
+public final class ShardCoordinator implements Closeable {
+    static final Logger logger = LoggerFactory.getLogger(ShardCoordinator.class);
+    /** Ranges per worker, so a slow worker does not hold up the whole pass. */
+    private static final int RANGES_PER_WORKER = 4;
+    private static final long MIN_RANGE_BYTES = 1L << 20;
+
+    private final Config config;
+    private final List<InetSocketAddress> workers;
+    private final LocalWorkerPool localWorkers;
+
+    /**
+     * Creates a coordinator for already running workers.
+     *
+     * @param config  The application configuration.
+     * @param workers Addresses of the workers to use, must not be empty.
+     */
+    public ShardCoordinator(Config config, List<InetSocketAddress> workers) {
+        this(config, workers, null);
+    }
+
+    private ShardCoordinator(Config config, List<InetSocketAddress> workers, LocalWorkerPool localWorkers) {
+        if (workers.isEmpty())
+            throw new IllegalArgumentException("Shard mode needs at least one worker (shard.workers or shard.local_workers).");
+        this.config = config;
+        this.workers = List.copyOf(workers);
+        this.localWorkers = localWorkers;
+    }
+
+    /**
+     * Creates a coordinator for the remote workers listed in
+     * {@link Config#shardWorkers()} plus {@link Config#shardLocalWorkers()} newly
+     * spawned local worker processes, which are destroyed on {@link #close()}.
+     *
+     * @param config The application configuration.
+     * @return The coordinator.
+     * @throws IOException If the local workers cannot be started.
+     */
+    public static ShardCoordinator start(Config config) throws IOException {
+        List<InetSocketAddress> workers = new ArrayList<>();
+        for (String worker : config.shardWorkers())
+            workers.add(parseAddress(worker));
+        LocalWorkerPool pool = new LocalWorkerPool(config.shardLocalWorkers(),
+                config.shardLocalWorkers() > 0 ? inputRoot(config.shardInputFiles()) : Path.of(""));
+        workers.addAll(pool.addresses());
+        try {
+            return new ShardCoordinator(config, workers, pool);
+        } catch (IllegalArgumentException e) {
+            pool.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The deepest directory containing all files, symbolic links
+     *         resolved.
+     * @throws IOException If a file does not exist or the files share no root.
+     */
+    static Path inputRoot(List<String> files) throws IOException {
+        Path root = null;
+        for (String file : files) {
+            Path parent = Path.of(file).toRealPath().getParent();
+            if (root == null)
+                root = parent;
+            while (root != null && !parent.startsWith(root))
+                root = root.getParent();
+            if (root == null)
+                throw new IOException("Input files for local shard workers must share a file system root: " + files);
+        }
+        return root;
+    }
+
+    static InetSocketAddress parseAddress(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        if (colon <= 0)
+            throw new IllegalArgumentException("shard.workers entries must be host:port, got '" + hostPort + "'");
+        return new InetSocketAddress(hostPort.substring(0, colon).trim(),
+                Integer.parseInt(hostPort.substring(colon + 1).trim()));
+    }
+
+    /**
+     * First round: computes the bounds of all input files on the workers.
+     *
+     * @return The merged bounds.
+     * @throws IOException If a worker fails or no valid point was found.
+     */
+    public Bounds findBounds() throws IOException {
+        BoundsResult result = new BoundsResult();
+        for (BoundsResult partial : dispatch(() -> {
+            BoundsResult merged = new BoundsResult();
+            return new RangeTask<>(merged, (connection, r) -> connection.bounds(r, merged));
+        }))
+            result.merge(partial);
+        Bounds bounds = result.bounds;
+        logger.info("Shard bounds: {}", bounds);
+        if (!bounds.isValid())
+            throw new IOException("No valid coordinate data found in the input files matching config criteria.");
+        if (config.boundsTrimPercent() > 0)
+            GetDatBounds.trimBounds(bounds, result.latSketch, result.lonSketch, config.boundsTrimPercent());
+        if (!bounds.hasRange())
+            logger.warn("All valid points are identical or very close.");
+        return bounds;
+    }
+
+    /**
+     * Second round: bins all input files on the workers against the given bounds.
+     *
+     * @param bounds The global bounds, either from {@link #findBounds()} or fixed.
+     * @return The merged density grid ({@code long[mapHeight][mapWidth]}).
+     * @throws IOException If a worker fails.
+     */
+    public long[][] populate(Bounds bounds) throws IOException {
+        long[][] grid = new long[config.mapHeight()][config.mapWidth()];
+        for (long[][] partial : dispatch(() -> {
+            long[][] merged = new long[config.mapHeight()][config.mapWidth()];
+            return new RangeTask<>(merged, (connection, r) -> connection.populate(r, bounds, merged));
+        })) {
+            for (int y = 0; y < grid.length; y++)
+                for (int x = 0; x < grid[y].length; x++)
+                    grid[y][x] += partial[y][x];
+        }
+        return grid;
+    }
+
+    /**
+     * Splits the input files into byte ranges of roughly equal size. Each file
+     * yields at least one range, so empty files still have their (absent)
+     * header handled consistently.
+     */
+    static List<Range> planRanges(List<String> files, int parts) throws IOException {
+        long totalBytes = 0;
+        for (String file : files) {
+            File f = new File(file);
+            if (!f.isFile())
+                throw new IOException("Input file not found: " + file);
+            totalBytes += f.length();
+        }
+        long rangeBytes = Math.max(MIN_RANGE_BYTES, (totalBytes + parts - 1) / Math.max(1, parts));
+        List<Range> ranges = new ArrayList<>();
+        for (String file : files) {
+            long length = new File(file).length();
+            long start = 0;
+            do {
+                long end = length - start <= rangeBytes ? length : start + rangeBytes;
+                ranges.add(new Range(file, start, end));
+                start = end;
+            } while (start < length);
+        }
+        return ranges;
+    }
+
+    private <T> List<T> dispatch(Supplier<RangeTask<T>> taskFactory) throws IOException {
+        List<Range> ranges = planRanges(config.shardInputFiles(), workers.size() * RANGES_PER_WORKER);
+        logger.info("Dispatching {} ranges to {} workers", ranges.size(), workers.size());
+        Queue<Range> pending = new ConcurrentLinkedQueue<>(ranges);
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (InetSocketAddress worker : workers) {
+                RangeTask<T> task = taskFactory.get();
+                futures.add(executor.submit(() -> {
+                    try (WorkerConnection connection = new WorkerConnection(worker)) {
+                        Range range;
+                        while ((range = pending.poll()) != null)
+                            task.step().accept(connection, range);
+                    }
+                    return task.result();
+                }));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures)
+                results.add(future.get());
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for shard workers", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (localWorkers != null)
+            localWorkers.close();
+    }
+
+    /** Merged bounds and, when trimming, coordinate sketches of the first round. */
+    private static final class BoundsResult {
+        Bounds bounds = new Bounds();
+        QuantileSketch latSketch;
+        QuantileSketch lonSketch;
+
+        void merge(BoundsResult other) {
+            bounds.merge(other.bounds);
+            if (other.latSketch != null) {
+                latSketch = latSketch == null ? other.latSketch : latSketch.merge(other.latSketch);
+                lonSketch = lonSketch == null ? other.lonSketch : lonSketch.merge(other.lonSketch);
+            }
+        }
+    }
+
+    /** A byte range {@code [start, end)} of one input file. */
+    record Range(String filePath, long start, long end) {
+    }
+
+    @FunctionalInterface
+    private interface RangeStep {
+        void accept(WorkerConnection connection, Range range) throws IOException;
+    }
+
+    /** Per-worker accumulator and the step folding one range into it. */
+    private record RangeTask<T>(T result, RangeStep step) {
+    }
+
+    /** One coordinator connection to a worker, reused for all its ranges. */
+    private final class WorkerConnection implements Closeable {
+        private final InetSocketAddress address;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        WorkerConnection(InetSocketAddress address) throws IOException {
+            this.address = address;
+            this.socket = new Socket(address.getHostString(), address.getPort());
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void bounds(Range range, BoundsResult target) throws IOException {
+            writeRequest(ShardProtocol.OP_BOUNDS, range);
+            out.flush();
+            readStatus(range);
+            BoundsResult partial = new BoundsResult();
+            partial.bounds = ShardProtocol.readBounds(in);
+            partial.latSketch = ShardProtocol.readSketch(in);
+            partial.lonSketch = ShardProtocol.readSketch(in);
+            target.merge(partial);
+        }
+
+        void populate(Range range, Bounds bounds, long[][] target) throws IOException {
+            writeRequest(ShardProtocol.OP_POPULATE, range);
+            ShardProtocol.writeBounds(out, bounds);
+            out.flush();
+            readStatus(range);
+            ShardProtocol.readGridInto(in, target);
+        }
+
+        private void writeRequest(byte op, Range range) throws IOException {
+            out.writeByte(op);
+            out.writeUTF(range.filePath());
+            out.writeLong(range.start());
+            out.writeLong(range.end());
+            ShardProtocol.writeConfig(out, config);
+        }
+
+        private void readStatus(Range range) throws IOException {
+            if (in.readByte() != ShardProtocol.STATUS_OK)
+                throw new IOException("Worker " + address + " failed on " + range + ": " + in.readUTF());
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package co.sedai.shard;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+import co.sedai.model.QuantileSketch;
+
+/**
+ * Wire format shared by {@link ShardCoordinator} and {@link ShardWorker}.
+ * <p>
+ * Every request starts with an operation byte. {@link #OP_BOUNDS} and
+ * {@link #OP_POPULATE} carry the parse settings, the file and the byte range
+ * to process ({@link #OP_POPULATE} additionally carries the global bounds).
+ * Every response starts with a status byte; on {@link #STATUS_ERROR} it is
+ * followed by a message, otherwise by a partial {@link Bounds} (plus the
+ * latitude/longitude sketches when bounds trimming is on) or a grid.
+ */
+final class ShardProtocol {
+    static final byte OP_BOUNDS = 1;
+    static final byte OP_POPULATE = 2;
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_ERROR = 1;
+
+    private static final byte GRID_DENSE = 0;
+    private static final byte GRID_SPARSE = 1;
+
+    private ShardProtocol() {
+    }
+
+    /**
+     * Writes the settings a worker needs to parse and bin its range. Output
+     * settings are not sent, workers never render.
+     */
+    static void writeConfig(DataOutputStream out, Config config) throws IOException {
+        out.writeInt(config.mapWidth());
+        out.writeInt(config.mapHeight());
+        out.writeUTF(config.inputDelimiter());
+        out.writeInt(config.inputSkipHeaderLines());
+        out.writeInt(config.latColumn());
+        out.writeInt(config.longColumn());
+        out.writeLong(config.errorCount());
+        out.writeDouble(config.boundsTrimPercent());
+    }
+
+    static Config readConfig(DataInputStream in, String filePath) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        String delimiter = in.readUTF();
+        int skipLines = in.readInt();
+        int latColumn = in.readInt();
+        int longColumn = in.readInt();
+        long errorCount = in.readLong();
+        double boundsTrimPercent = in.readDouble();
+        return Config.builder(filePath).mapWidth(width).mapHeight(height).inputDelimiter(delimiter)
+                .inputSkipHeaderLines(skipLines).renderDensityChars(" .".toCharArray())
+                .latColumn(latColumn).longColumn(longColumn).errorCount(errorCount)
+                .boundsTrimPercent(boundsTrimPercent).build();
+    }
+
+    static void writeBounds(DataOutputStream out, Bounds bounds) throws IOException {
+        out.writeDouble(bounds.minLat);
+        out.writeDouble(bounds.maxLat);
+        out.writeDouble(bounds.minLon);
+        out.writeDouble(bounds.maxLon);
+        out.writeLong(bounds.pointCount);
+    }
+
+    static Bounds readBounds(DataInputStream in) throws IOException {
+        Bounds bounds = new Bounds();
+        bounds.minLat = in.readDouble();
+        bounds.maxLat = in.readDouble();
+        bounds.minLon = in.readDouble();
+        bounds.maxLon = in.readDouble();
+        bounds.pointCount = in.readLong();
+        return bounds;
+    }
+
+    /**
+     * Writes an optional sketch, preceded by a presence flag.
+     */
+    static void writeSketch(DataOutputStream out, QuantileSketch sketch) throws IOException {
+        out.writeBoolean(sketch != null);
+        if (sketch != null)
+            sketch.writeTo(out);
+    }
+
+    static QuantileSketch readSketch(DataInputStream in) throws IOException {
+        return in.readBoolean() ? QuantileSketch.readFrom(in) : null;
+    }
+
+    /**
+     * Writes a grid either densely or as (cell index, count) pairs, whichever is
+     * smaller. Shards of a large grid usually touch only a fraction of its cells.
+     */
+    static void writeGrid(DataOutputStream out, long[][] grid) throws IOException {
+        int height = grid.length;
+        int width = height == 0 ? 0 : grid[0].length;
+        long nonZero = 0;
+        for (long[] row : grid)
+            for (long cell : row)
+                if (cell != 0)
+                    nonZero++;
+        out.writeInt(height);
+        out.writeInt(width);
+        if (nonZero * 12 < (long) height * width * 8) {
+            out.writeByte(GRID_SPARSE);
+            out.writeLong(nonZero);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (grid[y][x] != 0) {
+                        out.writeInt(y * width + x);
+                        out.writeLong(grid[y][x]);
+                    }
+                }
+            }
+        } else {
+            out.writeByte(GRID_DENSE);
+            for (long[] row : grid)
+                for (long cell : row)
+                    out.writeLong(cell);
+        }
+    }
+
+    /**
+     * Reads a grid written by {@link #writeGrid} and adds it cell by cell into
+     * {@code target}.
+     */
+    static void readGridInto(DataInputStream in, long[][] target) throws IOException {
+        int height = in.readInt();
+        int width = in.readInt();
+        if (height != target.length || (height > 0 && width != target[0].length))
+            throw new IOException("Worker returned a " + width + "x" + height + " grid, expected "
+                    + (height == 0 ? 0 : target[0].length) + "x" + target.length);
+        byte encoding = in.readByte();
+        if (encoding == GRID_SPARSE) {
+            long nonZero = in.readLong();
+            for (long i = 0; i < nonZero; i++) {
+                int index = in.readInt();
+                target[index / width][index % width] += in.readLong();
+            }
+        } else {
+            for (int y = 0; y < height; y++)
+                for (int x = 0; x < width; x++)
+                    target[y][x] += in.readLong();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package co.sedai.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import co.sedai.GetDatBounds;
+import co.sedai.GridDensityPopulator;
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+
+/**
+ * Worker side of the distributed shard mode.
+ * <p>
+ * Listens on a plain TCP socket and answers {@link ShardProtocol} requests from
+ * a {@link ShardCoordinator}: it runs {@link GetDatBounds} or
+ * {@link GridDensityPopulator} over the requested byte range of a file and
+ * returns the partial result. The input files must be readable under the same
+ * path on every worker (local disk copy or shared mount).
+ * <p>
+ * The protocol has no authentication, so a worker only opens files below its
+ * input root and, unless told otherwise, only listens on the loopback
+ * interface. Run standalone with
+ * {@code java -cp Sedai.jar co.sedai.shard.ShardWorker [port] [bindAddress] [inputRoot]};
+ * remote coordinators need an explicit {@code bindAddress}, the input root
+ * defaults to the working directory. Once listening, the worker prints
+ * {@value #READY_PREFIX} followed by the port on standard output.
+ */
+public final class ShardWorker implements Closeable {
+    static final Logger logger = LoggerFactory.getLogger(ShardWorker.class);
+    static final String READY_PREFIX = "SHARD_WORKER_PORT ";
+
+    private final ServerSocket serverSocket;
+    private final Path inputRoot;
+
+    /**
+     * Binds the worker to the given address. Requests are not served until
+     * {@link #serve()} is called.
+     *
+     * @param bindAddress The address to listen on.
+     * @param port        The port to listen on, or 0 for an ephemeral port.
+     * @param inputRoot   The directory the requested input files must be in.
+     * @throws IOException If the input root does not exist or the socket cannot
+     *                     be bound.
+     */
+    public ShardWorker(InetAddress bindAddress, int port, Path inputRoot) throws IOException {
+        this.inputRoot = inputRoot.toRealPath();
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts coordinator connections until the worker is closed. Each
+     * connection is served on its own thread and may carry any number of
+     * requests.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread handler = new Thread(() -> handle(socket), "shard-conn-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (SocketException e) {
+                // Socket closed, stop serving.
+            } catch (IOException e) {
+                logger.error("Error accepting coordinator connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                String filePath = in.readUTF();
+                long start = in.readLong();
+                long end = in.readLong();
+                Config config = ShardProtocol.readConfig(in, filePath);
+                Bounds bounds = op == ShardProtocol.OP_POPULATE ? ShardProtocol.readBounds(in) : null;
+                try {
+                    checkInputPath(filePath);
+                    if (op == ShardProtocol.OP_BOUNDS) {
+                        GetDatBounds finder = new GetDatBounds();
+                        Bounds partial = finder.findRangeBounds(config, filePath, start, end);
+                        out.writeByte(ShardProtocol.STATUS_OK);
+                        ShardProtocol.writeBounds(out, partial);
+                        ShardProtocol.writeSketch(out, finder.latSketch());
+                        ShardProtocol.writeSketch(out, finder.lonSketch());
+                    } else if (op == ShardProtocol.OP_POPULATE) {
+                        long[][] grid = new GridDensityPopulator(config, bounds).populate(filePath, start, end);
+                        out.writeByte(ShardProtocol.STATUS_OK);
+                        ShardProtocol.writeGrid(out, grid);
+                    } else {
+                        throw new IOException("Unknown shard operation " + op);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Shard request on {} [{}, {}) failed: {}", filePath, start, end, e.getMessage());
+                    out.writeByte(ShardProtocol.STATUS_ERROR);
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            logger.warn("Coordinator connection closed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @throws IOException If the file does not exist or lies outside the input
+     *                     root once symbolic links are resolved.
+     */
+    private void checkInputPath(String filePath) throws IOException {
+        if (!Path.of(filePath).toRealPath().startsWith(inputRoot))
+            throw new IOException("Input file " + filePath + " is outside the worker's input root");
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        try {
+            InetAddress bindAddress = args.length > 1 ? InetAddress.getByName(args[1])
+                    : InetAddress.getLoopbackAddress();
+            Path inputRoot = Path.of(args.length > 2 ? args[2] : "");
+            ShardWorker worker = new ShardWorker(bindAddress, port, inputRoot);
+            logger.info("Shard worker listening on {}:{}, serving files below {}", bindAddress.getHostAddress(),
+                    worker.port(), worker.inputRoot);
+            if (!bindAddress.isLoopbackAddress())
+                logger.warn("Shard workers do not authenticate coordinators; only expose {} to trusted hosts",
+                        bindAddress.getHostAddress());
+            System.out.println(READY_PREFIX + worker.port());
+            System.out.flush();
+            worker.serve();
+        } catch (IOException e) {
+            logger.error("FATAL: Could not start shard worker: {}", e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package co.sedai;
+
+import co.sedai.model.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Config config(Path input, int width, Path html) {
+        return TestConfigs.postcodes(input).mapWidth(width).mapHeight(10).htmlEnabled(true)
+                .htmlFilePath(html.toString()).build();
+    }
+
+    @Test
+    void run_ReportsFailuresPerJob() throws IOException {
+        Path csv = tempDir.resolve("points.csv");
+        Random random = new Random(5);
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("id,postcode,latitude,longitude\n");
+            for (int i = 0; i < 2_000; i++)
+                writer.write(String.format(Locale.ROOT, "%d,P%d,%.5f,%.5f\n", i, i,
+                        49.9 + random.nextDouble() * 10.8, -8.1 + random.nextDouble() * 9.9));
+        }
+        Path empty = tempDir.resolve("empty.csv");
+        Files.writeString(empty, "id,postcode,latitude,longitude\n1,P1,NULL,NULL\n");
+
+        List<BatchRunner.Job> jobs = List.of(
+                new BatchRunner.Job("small", config(csv, 20, tempDir.resolve("small.html"))),
+                new BatchRunner.Job("missing", config(tempDir.resolve("missing.csv"), 20,
+                        tempDir.resolve("missing.html"))),
+                new BatchRunner.Job("large", config(csv, 60, tempDir.resolve("large.html"))),
+                new BatchRunner.Job("empty", config(empty, 20, tempDir.resolve("empty.html"))));
+
+        List<BatchRunner.JobResult> results = new BatchRunner(2).run(jobs);
+
+        assertEquals(4, results.size());
+        assertEquals("small", results.get(0).name());
+        assertTrue(results.get(0).succeeded());
+        assertFalse(results.get(1).succeeded());
+        assertTrue(results.get(2).succeeded());
+        assertFalse(results.get(3).succeeded(), "No valid data must fail the job, not exit the JVM");
+        assertTrue(results.get(3).error().getMessage().contains("No valid coordinate data"));
+        assertTrue(Files.exists(tempDir.resolve("small.html")));
+        assertTrue(Files.exists(tempDir.resolve("large.html")));
+        assertFalse(Files.exists(tempDir.resolve("empty.html")));
+    }
+
+    @Test
+    void readManifest_ResolvesRelativeEntries() throws IOException {
+        Path config = tempDir.resolve("a.properties");
+        Files.writeString(config, "input.file_path=x.csv\n");
+        Path manifest = tempDir.resolve("jobs.txt");
+        Files.writeString(manifest, "# maps\n\na.properties\n  test.properties  \n");
+
+        List<String> entries = BatchRunner.readManifest(manifest);
+
+        assertEquals(List.of(config.toAbsolutePath().toString(), "test.properties"), entries);
+    }
+}
@@ -0,0 +1,116 @@
+package co.sedai;
+
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundsKernelTest {
+
+    @Test
+    void reduce_MatchesNaiveLoop() {
+        Random random = new Random(3);
+        // Below, at and well above the leaf size, including odd remainders.
+        for (int size : new int[] { 1, 17, BoundsKernel.LEAF_SIZE, BoundsKernel.LEAF_SIZE * 5 + 3 }) {
+            double[] lats = new double[size + 10];
+            double[] lons = new double[size + 10];
+            Bounds expected = new Bounds();
+            for (int i = 0; i < size; i++) {
+                lats[i] = -90 + random.nextDouble() * 180;
+                lons[i] = -180 + random.nextDouble() * 360;
+                expected.minLat = Math.min(expected.minLat, lats[i]);
+                expected.maxLat = Math.max(expected.maxLat, lats[i]);
+                expected.minLon = Math.min(expected.minLon, lons[i]);
+                expected.maxLon = Math.max(expected.maxLon, lons[i]);
+            }
+            // Entries past size must be ignored.
+            lats[size] = 100;
+            lons[size] = -500;
+
+            Bounds bounds = BoundsKernel.reduce(lats, lons, size);
+            assertEquals(size, bounds.pointCount());
+            assertEquals(expected.minLat(), bounds.minLat());
+            assertEquals(expected.maxLat(), bounds.maxLat());
+            assertEquals(expected.minLon(), bounds.minLon());
+            assertEquals(expected.maxLon(), bounds.maxLon());
+        }
+    }
+
+    @Test
+    void reduce_EmptyIsInvalid() {
+        assertFalse(BoundsKernel.reduce(new double[0], new double[0], 0).isValid());
+    }
+
+    @Test
+    void pointCache_MatchesFilePasses(@TempDir Path tempDir) throws IOException {
+        Path csv = tempDir.resolve("points.csv");
+        Random random = new Random(11);
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("id,postcode,latitude,longitude\n");
+            for (int i = 0; i < 5_000; i++)
+                writer.write(String.format(Locale.ROOT, "%d,P%d,%.5f,%.5f\n", i, i,
+                        49.9 + random.nextDouble() * 10.8, -8.1 + random.nextDouble() * 9.9));
+            writer.write("5000,NULL,99.0,0.0\n");
+        }
+        Config config = TestConfigs.postcodes(csv).mapWidth(30).mapHeight(15)
+                .pipelineThreads(2).pipelineBlockSize(1 << 16).pipelineQueueDepth(4).cachePoints(true).build();
+
+        Bounds expectedBounds = new GetDatBounds().findDataBounds(config);
+        long[][] expectedGrid = new GridDensityPopulator(config, expectedBounds).populate();
+
+        PointCache cache = PointCache.load(config);
+        Bounds bounds = cache.bounds();
+        assertEquals(5_000, cache.size());
+        assertEquals(expectedBounds.pointCount(), bounds.pointCount());
+        assertEquals(expectedBounds.minLat(), bounds.minLat());
+        assertEquals(expectedBounds.maxLon(), bounds.maxLon());
+
+        long[][] grid = new GridDensityPopulator(config, bounds).populate(cache);
+        for (int y = 0; y < expectedGrid.length; y++)
+            assertArrayEquals(expectedGrid[y], grid[y], "Row " + y);
+    }
+
+    @Test
+    void trimmedBounds_IgnoreNullIsland(@TempDir Path tempDir) throws IOException {
+        Path csv = tempDir.resolve("postcodes.csv");
+        Random random = new Random(13);
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("id,postcode,latitude,longitude\n");
+            for (int i = 0; i < 20_000; i++) {
+                if (i % 5_000 == 0)
+                    writer.write(i + ",NULLISLAND,0.0,0.0\n");
+                writer.write(String.format(Locale.ROOT, "%d,P%d,%.5f,%.5f\n", i, i,
+                        49.9 + random.nextDouble() * 10.8, -8.1 + random.nextDouble() * 9.9));
+            }
+        }
+        for (boolean pipelined : new boolean[] { false, true }) {
+            Config config = TestConfigs.postcodes(csv).mapWidth(30).mapHeight(15).pipelineEnabled(pipelined)
+                    .pipelineThreads(2).pipelineBlockSize(1 << 16).pipelineQueueDepth(4).boundsTrimPercent(0.1)
+                    .build();
+            Bounds raw = new GetDatBounds().findDataBounds(TestConfigs.postcodes(csv).mapWidth(30).mapHeight(15)
+                    .build());
+            Bounds trimmed = new GetDatBounds().findDataBounds(config);
+
+            assertEquals(0.0, raw.minLat());
+            assertTrue(trimmed.minLat() > 49.8, "Null island should be trimmed, got " + trimmed);
+            assertTrue(trimmed.maxLon() < 1.9 && trimmed.maxLon() > 1.5, "Upper bound kept, got " + trimmed);
+            assertEquals(raw.pointCount(), trimmed.pointCount());
+        }
+
+        Config cached = TestConfigs.postcodes(csv).mapWidth(30).mapHeight(15).pipelineThreads(2)
+                .pipelineBlockSize(1 << 16).pipelineQueueDepth(4).cachePoints(true).boundsTrimPercent(0.1).build();
+        PointCache cache = PointCache.load(cached);
+        Bounds bounds = cache.bounds();
+        GetDatBounds.trimBounds(bounds, cache.latSketch(), cache.lonSketch(), cached.boundsTrimPercent());
+        assertTrue(bounds.minLat() > 49.8, "Null island should be trimmed, got " + bounds);
+    }
+}
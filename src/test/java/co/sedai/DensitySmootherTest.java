@@ -0,0 +1,96 @@
+package co.sedai;
+
+import co.sedai.model.Config;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DensitySmootherTest {
+
+    private Config smoothConfig(int width, int height, String kernel, double bandwidth) {
+        return Config.builder("unused.csv").mapWidth(width).mapHeight(height).smoothKernel(kernel)
+                .smoothBandwidth(bandwidth).build();
+    }
+
+    @Test
+    void weights_AreNormalizedAndSymmetric() {
+        for (String kernel : new String[] { "gaussian", "epanechnikov" }) {
+            double[] weights = DensitySmoother.weights(kernel, 2.5);
+            double sum = 0;
+            for (double weight : weights)
+                sum += weight;
+            assertEquals(1.0, sum, 1e-12, kernel);
+            int center = weights.length / 2;
+            for (int i = 1; i <= center; i++) {
+                assertEquals(weights[center - i], weights[center + i], 1e-15, kernel);
+                assertTrue(weights[center + i] <= weights[center + i - 1], kernel);
+            }
+        }
+        assertEquals(17, DensitySmoother.weights("gaussian", 2.5).length);
+        assertEquals(5, DensitySmoother.weights("epanechnikov", 2.5).length);
+    }
+
+    @Test
+    void smooth_MatchesDirectConvolution() {
+        int width = 150;
+        int height = 130;
+        Random random = new Random(17);
+        long[][] grid = new long[height][width];
+        for (int i = 0; i < 2_000; i++)
+            grid[random.nextInt(height)][random.nextInt(width)] += 1 + random.nextInt(40);
+        for (String kernel : new String[] { "gaussian", "epanechnikov" }) {
+            double[] weights = DensitySmoother.weights(kernel, 3);
+            int radius = weights.length / 2;
+            long[][] expected = new long[height][width];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    double sum = 0;
+                    for (int dy = -radius; dy <= radius; dy++)
+                        for (int dx = -radius; dx <= radius; dx++)
+                            if (y + dy >= 0 && y + dy < height && x + dx >= 0 && x + dx < width)
+                                sum += grid[y + dy][x + dx] * weights[dy + radius] * weights[dx + radius];
+                    expected[y][x] = DensitySmoother.toCount(sum, grid[y][x] > 0);
+                }
+            }
+
+            long[][] smoothed = new long[height][];
+            for (int y = 0; y < height; y++)
+                smoothed[y] = grid[y].clone();
+            DensitySmoother smoother = new DensitySmoother(smoothConfig(width, height, kernel, 3));
+            assertSame(smoothed, smoother.smooth(smoothed));
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++)
+                    assertEquals(expected[y][x], smoothed[y][x], 1, kernel + " cell " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void smooth_IsolatedPointStaysVisible() {
+        long[][] grid = new long[21][21];
+        grid[10][10] = 1;
+        new DensitySmoother(smoothConfig(21, 21, "gaussian", 1.5)).smooth(grid);
+
+        assertEquals(1, grid[10][10]);
+        // The halo around the point is far below one count and falls off.
+        for (int y = 0; y < 21; y++)
+            for (int x = 0; x < 21; x++)
+                if (y != 10 || x != 10)
+                    assertEquals(0, grid[y][x], "Halo cell " + x + "," + y);
+
+        long[][] dense = new long[21][21];
+        dense[10][10] = 1_000_000;
+        new DensitySmoother(smoothConfig(21, 21, "gaussian", 1.5)).smooth(dense);
+        // Bandwidth 1.5 truncates at 3 standard deviations, 5 cells.
+        assertTrue(dense[10][15] > 0);
+        assertEquals(0, dense[10][16], "Outside the kernel support");
+
+        long[][] empty = new long[21][21];
+        new DensitySmoother(smoothConfig(21, 21, "gaussian", 1.5)).smooth(empty);
+        for (long[] row : empty)
+            for (long cell : row)
+                assertEquals(0, cell);
+    }
+}
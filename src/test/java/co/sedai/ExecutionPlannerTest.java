@@ -0,0 +1,158 @@
+package co.sedai;
+
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionPlannerTest {
+
+    private static final long MB = 1 << 20;
+
+    @TempDir
+    Path tempDir;
+
+    private Path csv;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        csv = tempDir.resolve("points.csv");
+        Random random = new Random(21);
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("id,postcode,latitude,longitude\n");
+            for (int i = 0; i < 10_000; i++)
+                writer.write(String.format(Locale.ROOT, "%d,P%d,%.5f,%.5f\n", i, i,
+                        49.9 + random.nextDouble() * 10.8, -8.1 + random.nextDouble() * 9.9));
+        }
+    }
+
+    private Config plannerConfig(int width, int height, Bounds fixedBounds, int timeColumn) {
+        return TestConfigs.postcodes(csv).mapWidth(width).mapHeight(height).fixedBounds(fixedBounds)
+                .timeColumn(timeColumn).memoryPlanner(true).build();
+    }
+
+    private static Bounds fixed() {
+        Bounds bounds = new Bounds();
+        bounds.minLat = 49;
+        bounds.maxLat = 61;
+        bounds.minLon = -9;
+        bounds.maxLon = 2;
+        return bounds;
+    }
+
+    @Test
+    void plan_CachesPointsWhenTheyFit() throws IOException {
+        ExecutionPlanner.ExecutionPlan plan = ExecutionPlanner.plan(plannerConfig(100, 50, null, -1), 512 * MB, 4);
+
+        assertEquals(10_001, plan.estimatedRows());
+        assertTrue(plan.cachePoints());
+        assertEquals(4, plan.threads());
+        Config planned = plan.apply(plannerConfig(100, 50, null, -1));
+        assertTrue(planned.cachePoints());
+        assertEquals(4, planned.pipelineThreads());
+    }
+
+    @Test
+    void plan_NeverTurnsOnExplicitlyDisabledSettings() throws IOException {
+        Config noCache = TestConfigs.postcodes(csv).mapWidth(100).mapHeight(50).memoryPlanner(true)
+                .cachePointsExplicit(true).build();
+        ExecutionPlanner.ExecutionPlan plan = ExecutionPlanner.plan(noCache, 512 * MB, 4);
+        assertFalse(plan.cachePoints());
+        assertEquals(4, plan.threads());
+        assertFalse(plan.apply(noCache).cachePoints());
+
+        Config sequential = TestConfigs.postcodes(csv).mapWidth(100).mapHeight(50).memoryPlanner(true)
+                .pipelineExplicit(true).cachePointsExplicit(true).build();
+        plan = ExecutionPlanner.plan(sequential, 512 * MB, 4);
+        assertEquals(1, plan.threads());
+        assertFalse(plan.apply(sequential).pipelineEnabled());
+
+        Config pipelined = sequential.toBuilder().pipelineEnabled(true).build();
+        assertTrue(ExecutionPlanner.plan(pipelined, 512 * MB, 4).apply(pipelined).pipelineEnabled());
+    }
+
+    @Test
+    void plan_SharedPointsOnlyNeedBinningAndRendering() throws IOException {
+        Config config = plannerConfig(100, 50, null, -1);
+        PointCache points = PointCache.load(config);
+        // 100x50 cells: 40 KB grid + 20 KB text, far less than caching 10,000 rows.
+        long budget = 256 * 1024;
+        assertFalse(ExecutionPlanner.plan(config, budget, 4).cachePoints());
+
+        ExecutionPlanner.ExecutionPlan plan = ExecutionPlanner.plan(config, budget, 4, points);
+        assertTrue(plan.cachePoints());
+        assertEquals(points.size(), plan.estimatedRows());
+        assertEquals(100 * 50 * (8 + 4), plan.peakBytes());
+        assertThrows(IllegalArgumentException.class, () -> ExecutionPlanner.plan(config, 32 * 1024, 4, points));
+    }
+
+    @Test
+    void plan_NarrowsCountersToKeepThreads() throws IOException {
+        // 1000x1000 cells: 8 MB grid + 4 MB text, 14 MB of blocks, 12 MB left for partial grids.
+        long budget = (long) ((12 + 14 + 12) * MB / 0.9) + 1024;
+        ExecutionPlanner.ExecutionPlan plan = ExecutionPlanner.plan(plannerConfig(1000, 1000, fixed(), -1), budget, 4);
+
+        assertFalse(plan.cachePoints(), "Single pass with fixed bounds, caching does not help");
+        assertTrue(plan.narrowCounters());
+        assertEquals(3, plan.threads());
+        assertTrue(plan.peakBytes() <= budget);
+
+        ExecutionPlanner.ExecutionPlan large = ExecutionPlanner.plan(plannerConfig(1000, 1000, fixed(), -1),
+                1024 * MB, 4);
+        assertFalse(large.narrowCounters());
+        assertEquals(4, large.threads());
+    }
+
+    @Test
+    void plan_FailsFastWhenGridDoesNotFit() {
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> ExecutionPlanner.plan(plannerConfig(4000, 4000, null, -1), 64 * MB, 4));
+        assertTrue(thrown.getMessage().contains("4000x4000"));
+    }
+
+    @Test
+    void plan_LimitsTimeWindows() throws IOException {
+        // 1 MB grid + 0.5 MB text, room for 20 window grids.
+        long budget = (long) ((1.5 + 20) * MB / 0.9) + 1024;
+        ExecutionPlanner.ExecutionPlan plan = ExecutionPlanner.plan(plannerConfig(512, 256, null, 0), budget, 2);
+
+        assertEquals(20, plan.maxWindows());
+        assertEquals(20, plan.apply(plannerConfig(512, 256, null, 0)).timeMaxWindows());
+    }
+
+    @Test
+    void estimateRows_ExtrapolatesFromSample() throws IOException {
+        Path large = tempDir.resolve("large.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(large)) {
+            for (int i = 0; i < 400_000; i++)
+                writer.write("0123456789,12.5,-1.5\n");
+        }
+        long rows = ExecutionPlanner.estimateRows(large, Files.size(large));
+        assertTrue(Files.size(large) > ExecutionPlanner.SAMPLE_BYTES);
+        assertEquals(400_000, rows, 10);
+    }
+
+    @Test
+    void narrowCounters_MatchWideGrid() throws IOException {
+        Config wide = plannerConfig(37, 23, null, -1).withPlan(true, 3, false, false, 1000);
+        Config narrow = plannerConfig(37, 23, null, -1).withPlan(true, 3, false, true, 1000);
+        Bounds bounds = new GetDatBounds().findDataBounds(wide);
+
+        long[][] expected = new GridDensityPopulator(wide, bounds).populate();
+        GridDensityPopulator populator = new GridDensityPopulator(narrow, bounds);
+        long[][] grid = populator.populate();
+        for (int y = 0; y < expected.length; y++)
+            assertArrayEquals(expected[y], grid[y], "Row " + y);
+        assertEquals(0, populator.overflowGrids(), "No worker should need a long grid without an overflow");
+    }
+}
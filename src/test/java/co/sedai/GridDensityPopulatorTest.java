@@ -6,8 +6,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import co.sedai.model.TimeWindows;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,11 +30,9 @@ class GridDensityPopulatorTest {
          // Path to the test CSV in resources
          String testCsvPath = getClass().getClassLoader().getResource("test-points.csv").getPath();
 
-         testConfig = new Config(
-                testCsvPath, // Use path from resources
-                10, 5, ",", 1, densityChars,
-                0, 1, true, "./map.html" , 10// lat=col 0, lon=col 1
-        );
+         // Use path from resources; lat=col 0, lon=col 1
+         testConfig = TestConfigs.postcodes(testCsvPath).mapWidth(10).mapHeight(5).renderDensityChars(densityChars)
+                .latColumn(0).longColumn(1).htmlEnabled(true).htmlFilePath("./map.html").build();
 
         // // Bounds matching the data in test-points.csv (excluding header and out-of-bounds points)
         // // MinLat=1.0, MaxLat=9.0, MinLon=1.0, MaxLon=9.0, PointCount=6 (calculated manually for test)
@@ -105,10 +106,9 @@ class GridDensityPopulatorTest {
          File emptyFile = tempDir.resolve("empty.csv").toFile();
          emptyFile.createNewFile();
 
-         Config emptyConfig = new Config(
-                emptyFile.getAbsolutePath(),
-                10, 5, ",", 0, " .".toCharArray(), 0, 1,true, "./map.html",10
-         );
+         Config emptyConfig = TestConfigs.postcodes(emptyFile.getAbsolutePath()).mapWidth(10).mapHeight(5)
+                .inputSkipHeaderLines(0).renderDensityChars(" .".toCharArray()).latColumn(0).longColumn(1)
+                .htmlEnabled(true).htmlFilePath("./map.html").build();
          Bounds emptyBounds = new Bounds();
          testBounds.maxLat = 0.0;
          testBounds.minLat =0.0;
@@ -125,4 +125,60 @@ class GridDensityPopulatorTest {
              }
          }
      }
+
+    @Test
+    void populateWindows_OneGridPerWindow(@TempDir Path tempDir) throws IOException {
+        Path csv = tempDir.resolve("timed.csv");
+        Files.writeString(csv, """
+                lat,lon,time
+                1.0,1.0,3600
+                9.0,9.0,3700
+                5.0,5.0,7199
+                5.0,5.0,10800
+                5.0,5.0,not-a-time
+                50.0,5.0,3600
+                """);
+        Config config = TestConfigs.postcodes(csv).mapWidth(10).mapHeight(5).renderDensityChars(" .123".toCharArray())
+                .latColumn(0).longColumn(1).htmlEnabled(true).htmlFilePath(tempDir.resolve("map.html").toString())
+                .timeColumn(2).timeWindowSeconds(1800).timeMaxWindows(10).build();
+
+        TimeWindows windows = new GridDensityPopulator(config, testBounds).populateWindows();
+
+        // Windows [3600, 5400), [5400, 7200), empty [7200, 9000), [9000, 10800), [10800, 12600).
+        assertEquals(3_600_000, windows.startMillis());
+        assertEquals(5, windows.size());
+        assertEquals(1, windows.grids().get(0)[4][0]);
+        assertEquals(1, windows.grids().get(0)[0][9]);
+        assertEquals(1, windows.grids().get(1)[2][5]);
+        assertEquals(0, windows.grids().get(2)[2][5]);
+        assertEquals(1, windows.grids().get(4)[2][5]);
+        assertEquals(1, windows.maxCount());
+
+        RenderAsciiMap.renderFrames(windows, config, testBounds);
+        String html = Files.readString(tempDir.resolve("map.html"));
+        assertEquals(5, html.split("<pre class=\"frame\"", -1).length - 1);
+        assertTrue(html.contains("1970-01-01T01:00:00Z - 1970-01-01T01:30:00Z"));
+    }
+
+    @Test
+    void populateWindows_FailsAboveMaxWindows(@TempDir Path tempDir) throws IOException {
+        Path csv = tempDir.resolve("timed.csv");
+        Files.writeString(csv, "lat,lon,time\n1.0,1.0,0\n2.0,2.0,86400\n");
+        Config config = TestConfigs.postcodes(csv).mapWidth(10).mapHeight(5).renderDensityChars(" .123".toCharArray())
+                .latColumn(0).longColumn(1).timeColumn(2).timeWindowSeconds(60).timeMaxWindows(100).build();
+
+        IOException thrown = assertThrows(IOException.class,
+                () -> new GridDensityPopulator(config, testBounds).populateWindows());
+        assertTrue(thrown.getMessage().contains("time.max_windows"));
+    }
+
+    @Test
+    void parseTimeMillis_Formats() {
+        assertEquals(1_500, GridDensityPopulator.parseTimeMillis("1.5", "epoch_seconds"));
+        assertEquals(1_500, GridDensityPopulator.parseTimeMillis("1500", "epoch_millis"));
+        assertEquals(86_400_000, GridDensityPopulator.parseTimeMillis("1970-01-02T00:00:00Z", "iso"));
+        assertEquals(86_400_000, GridDensityPopulator.parseTimeMillis("1970-01-02 00:00:00", "iso"));
+        assertEquals(82_800_000, GridDensityPopulator.parseTimeMillis("1970-01-02T00:00:00+01:00", "iso"));
+        assertEquals("out/map-0003.html", RenderAsciiMap.framePath("out/map.html", 3));
+    }
 }
@@ -6,7 +6,11 @@ import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 
 class MainTest {
@@ -69,6 +73,118 @@ class MainTest {
                    "Exception message should indicate invalid dimensions. Actual: " + thrown.getMessage());
     }
     
+    @Test
+    void leanLoad_MatchesLoadConfig() throws Exception {
+        Config expected = invokeLoadConfig("test.properties");
+        Config config = ConfigReader.load("test.properties");
+
+        assertEquals(expected.filePath(), config.filePath());
+        assertEquals(expected.mapWidth(), config.mapWidth());
+        assertEquals(expected.mapHeight(), config.mapHeight());
+        assertEquals(expected.inputDelimiter(), config.inputDelimiter());
+        assertEquals(expected.latColumn(), config.latColumn());
+        assertArrayEquals(expected.renderDensityChars(), config.renderDensityChars());
+        assertEquals(expected.fixedBounds(), config.fixedBounds());
+
+        assertThrows(java.io.IOException.class, () -> ConfigReader.load("non-existent-config.properties"));
+    }
+
+    @Test
+    void leanLoad_KeepsEscapedLeadingSpace() throws Exception {
+        Path properties = Files.createTempFile("lean", ".properties");
+        try {
+            Files.writeString(properties, String.join("\n",
+                    "input.file_path = points.csv  ",
+                    "map.width = 10",
+                    "map.height = 5",
+                    "input.delimiter = ,",
+                    "input.skip_header_lines = 1  ",
+                    "input.lat_column = 0",
+                    "input.long_column = 1",
+                    "render.density_chars = \\ .:o  ",
+                    ""));
+            Config config = ConfigReader.load(properties.toString());
+
+            assertArrayEquals(" .:o".toCharArray(), config.renderDensityChars());
+            assertEquals("points.csv", config.filePath());
+            assertEquals(1, config.inputSkipHeaderLines());
+        } finally {
+            Files.delete(properties);
+        }
+    }
+
+    private static Map<String, String> minimalProperties() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("input.file_path", "points.csv");
+        properties.put("map.width", "10");
+        properties.put("map.height", "5");
+        properties.put("input.delimiter", ",");
+        properties.put("input.skip_header_lines", "1");
+        properties.put("input.lat_column", "0");
+        properties.put("input.long_column", "1");
+        properties.put("render.density_chars", " .:o");
+        return properties;
+    }
+
+    @Test
+    void read_PlannerIsOptIn() {
+        Map<String, String> properties = minimalProperties();
+        Config config = ConfigReader.read(properties::get);
+        assertFalse(config.memoryPlanner());
+        assertFalse(config.pipelineEnabled());
+        assertFalse(config.cachePoints());
+
+        properties.put("memory.planner", "true");
+        assertTrue(ConfigReader.read(properties::get).memoryPlanner());
+    }
+
+    @Test
+    void read_RejectsOverflowingTimeWindow() {
+        Map<String, String> properties = minimalProperties();
+        properties.put("time.column", "2");
+        properties.put("time.window_seconds", String.valueOf(Long.MAX_VALUE / 1000 + 1));
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> ConfigReader.read(properties::get));
+        assertTrue(thrown.getMessage().contains("time.window_seconds"));
+
+        properties.put("time.window_seconds", String.valueOf(Long.MAX_VALUE / 1000));
+        assertEquals(Long.MAX_VALUE / 1000, ConfigReader.read(properties::get).timeWindowSeconds());
+    }
+
+    @Test
+    void read_RejectsTimeWindowsWithShardOrCache() {
+        Map<String, String> properties = minimalProperties();
+        properties.put("time.column", "2");
+        assertEquals(2, ConfigReader.read(properties::get).timeColumn());
+
+        properties.put("shard.enabled", "true");
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> ConfigReader.read(properties::get));
+        assertTrue(thrown.getMessage().contains("shard.enabled"));
+
+        properties.remove("shard.enabled");
+        properties.put("input.cache_points", "true");
+        thrown = assertThrows(IllegalArgumentException.class, () -> ConfigReader.read(properties::get));
+        assertTrue(thrown.getMessage().contains("input.cache_points"));
+    }
+
+    @Test
+    void read_RejectsTilesWithShardOrSmoothing() {
+        Map<String, String> properties = minimalProperties();
+        properties.put("tiles.enabled", "true");
+        assertTrue(ConfigReader.read(properties::get).tilesEnabled());
+
+        properties.put("shard.enabled", "true");
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> ConfigReader.read(properties::get));
+        assertTrue(thrown.getMessage().contains("shard.enabled"));
+
+        properties.remove("shard.enabled");
+        properties.put("smooth.kernel", "gaussian");
+        thrown = assertThrows(IllegalArgumentException.class, () -> ConfigReader.read(properties::get));
+        assertTrue(thrown.getMessage().contains("smooth.kernel"));
+    }
+
     @Test
     void main_Placeholder() {
         assertTrue(true, "Testing main() execution flow typically requires integration testing setup.");
@@ -0,0 +1,105 @@
+package co.sedai;
+
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PointPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String csvPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path csv = tempDir.resolve("points.csv");
+        Random random = new Random(7);
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("id,postcode,latitude,longitude\r\n");
+            for (int i = 0; i < 20_000; i++) {
+                double lat = 49.9 + random.nextDouble() * 10.8;
+                double lon = -8.1 + random.nextDouble() * 9.9;
+                // Mix line endings, blank lines and invalid rows into the stream.
+                String eol = i % 3 == 0 ? "\r\n" : "\n";
+                writer.write(String.format(Locale.ROOT, "%d,AB%d 1CD,%.6f,%.6f%s", i, i % 99, lat, lon, eol));
+                if (i % 997 == 0)
+                    writer.write("\n");
+                if (i % 1009 == 0)
+                    writer.write(i + ",BAD,not-a-number,1.0\n");
+                if (i % 1013 == 0)
+                    writer.write(i + ",ZZ,95.0,1.0\n");
+            }
+            // No trailing line terminator on the last line.
+            writer.write("20000,LAST,55.5,-3.3");
+        }
+        csvPath = csv.toString();
+    }
+
+    private Config config(boolean pipelined, boolean virtualThreads) {
+        // 4 KB blocks so lines regularly straddle block boundaries.
+        return TestConfigs.postcodes(csvPath).pipelineEnabled(pipelined).pipelineThreads(3)
+                .pipelineVirtualThreads(virtualThreads).pipelineBlockSize(4096).pipelineQueueDepth(2).build();
+    }
+
+    @Test
+    void pipelined_MatchesSequentialPasses() throws IOException {
+        Config sequential = config(false, false);
+        Bounds expectedBounds = new GetDatBounds().findDataBounds(sequential);
+        long[][] expectedGrid = new GridDensityPopulator(sequential, expectedBounds).populate();
+
+        for (boolean virtualThreads : new boolean[] { true, false }) {
+            Config pipelined = config(true, virtualThreads);
+            Bounds bounds = new GetDatBounds().findDataBounds(pipelined);
+            assertEquals(expectedBounds.pointCount(), bounds.pointCount());
+            assertEquals(20_001, bounds.pointCount());
+            assertEquals(expectedBounds.minLat(), bounds.minLat());
+            assertEquals(expectedBounds.maxLat(), bounds.maxLat());
+            assertEquals(expectedBounds.minLon(), bounds.minLon());
+            assertEquals(expectedBounds.maxLon(), bounds.maxLon());
+
+            long[][] grid = new GridDensityPopulator(pipelined, bounds).populate();
+            for (int y = 0; y < expectedGrid.length; y++)
+                assertArrayEquals(expectedGrid[y], grid[y], "Row " + y);
+        }
+    }
+
+    @Test
+    void pipelined_LineLongerThanBlockFails() throws IOException {
+        Path csv = tempDir.resolve("long.csv");
+        Files.writeString(csv, "lat,lon\n" + "1.0,2.0," + "x".repeat(10_000) + "\n");
+        Config config = TestConfigs.postcodes(csv).mapWidth(10).mapHeight(5).latColumn(0).longColumn(1)
+                .pipelineEnabled(true).pipelineThreads(2).pipelineBlockSize(4096).pipelineQueueDepth(2).build();
+
+        assertThrows(IOException.class, () -> new PointPipeline(config, "Pass 1", "rejected")
+                .run(config.filePath(), () -> (lat, lon) -> true));
+    }
+
+    @Test
+    void pipelined_KeepsNonAsciiBytesAtLineEdges() throws IOException {
+        Path csv = tempDir.resolve("names.csv");
+        // UTF-8 bytes above 0x7f are negative as Java bytes and must not be trimmed
+        // like whitespace: the last two rows have invalid coordinates either way.
+        Files.writeString(csv, "lat,lon,name\n52.0,-1.0,Z\u00fcrich\n53.0,-2.0,Malm\u00f6\n"
+                + "\u00e954.0,-1.0,x\n55.0,-1.0\u00e9\n", StandardCharsets.UTF_8);
+        Config config = TestConfigs.postcodes(csv).mapWidth(10).mapHeight(5).latColumn(0).longColumn(1)
+                .pipelineEnabled(true).pipelineThreads(2).build();
+
+        Bounds bounds = new GetDatBounds().findDataBounds(config);
+        assertEquals(2, bounds.pointCount());
+        assertEquals(53.0, bounds.maxLat());
+        assertEquals(-1.0, bounds.maxLon());
+    }
+}
@@ -0,0 +1,58 @@
+package co.sedai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeLineReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<String> readRange(Path file, long start, long end) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (RangeLineReader reader = new RangeLineReader(file.toString(), start, end)) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                lines.add(line);
+        }
+        return lines;
+    }
+
+    @Test
+    void ranges_ReadEveryLineOnce() throws IOException {
+        Random random = new Random(5);
+        List<String> expected = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 3_000; i++) {
+            // Lines crossing the 64 KB buffer, one longer than the buffer, CRLF,
+            // empty and non-ASCII lines.
+            String line = i == 1_500 ? "x".repeat(200_000)
+                    : i % 101 == 0 ? "" : i + ",Zürich," + "y".repeat(random.nextInt(120));
+            expected.add(line);
+            content.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        content.append("last");
+        expected.add("last");
+        Path file = tempDir.resolve("lines.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        long size = Files.size(file);
+
+        assertEquals(expected, readRange(file, 0, Long.MAX_VALUE));
+        for (int parts : new int[] { 2, 7, 64 }) {
+            List<String> lines = new ArrayList<>();
+            for (int part = 0; part < parts; part++)
+                lines.addAll(readRange(file, size * part / parts, size * (part + 1) / parts));
+            assertEquals(expected, lines, parts + " ranges");
+        }
+    }
+}
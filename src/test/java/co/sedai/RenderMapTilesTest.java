@@ -0,0 +1,152 @@
+package co.sedai;
+
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderMapTilesTest {
+
+    private static final int TILE = 16;
+    private static final int MAX_ZOOM = 2;
+
+    @TempDir
+    Path tempDir;
+
+    private Config tileConfig(Path csv, int width, Path tiles) {
+        return TestConfigs.postcodes(csv).mapWidth(width).mapHeight(width).fixedBounds(fixed()).pipelineThreads(2)
+                .rasterPalette("heat").tilesEnabled(true).tilesDirectory(tiles.toString()).tilesMaxZoom(MAX_ZOOM)
+                .tileSize(TILE).build();
+    }
+
+    private static Bounds fixed() {
+        Bounds bounds = new Bounds();
+        bounds.minLat = 50;
+        bounds.maxLat = 58;
+        bounds.minLon = -6;
+        bounds.maxLon = 2;
+        return bounds;
+    }
+
+    /** Points clustered in the south-west, so the north-east tiles stay empty. */
+    private Path writePoints(String name, int points, long seed) throws IOException {
+        Path csv = tempDir.resolve(name);
+        Random random = new Random(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("id,postcode,latitude,longitude\n");
+            for (int i = 0; i < points; i++)
+                writer.write(String.format(Locale.ROOT, "%d,P%d,%.5f,%.5f\n", i, i,
+                        50 + Math.abs(random.nextGaussian()), -6 + Math.abs(random.nextGaussian())));
+        }
+        return csv;
+    }
+
+    @Test
+    void render_TilesMatchGridAtEveryZoom() throws IOException {
+        Path csv = writePoints("points.csv", 5_000, 3);
+        Path tiles = tempDir.resolve("tiles");
+
+        RenderMapTiles.TileSummary summary = new RenderMapTiles(tileConfig(csv, TILE, tiles), fixed()).render();
+
+        int[] palette = RenderRasterMap.palette("heat");
+        int expectedTiles = 0;
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+            int width = TILE << zoom;
+            long[][] grid = new GridDensityPopulator(tileConfig(csv, width, tiles), fixed()).populate();
+            long maxCount = 0;
+            for (long[] row : grid)
+                for (long cell : row)
+                    maxCount = Math.max(maxCount, cell);
+            for (int ty = 0; ty < 1 << zoom; ty++) {
+                for (int tx = 0; tx < 1 << zoom; tx++) {
+                    Path tile = tiles.resolve(zoom + "/" + tx + "/" + ty + ".png");
+                    boolean empty = true;
+                    for (int y = 0; y < TILE; y++)
+                        for (int x = 0; x < TILE; x++)
+                            empty &= grid[ty * TILE + y][tx * TILE + x] == 0;
+                    assertEquals(!empty, Files.exists(tile), "Tile " + zoom + "/" + tx + "/" + ty);
+                    if (empty)
+                        continue;
+                    expectedTiles++;
+                    BufferedImage image = ImageIO.read(tile.toFile());
+                    assertEquals(TILE, image.getWidth());
+                    for (int y = 0; y < TILE; y++) {
+                        for (int x = 0; x < TILE; x++) {
+                            long count = grid[ty * TILE + y][tx * TILE + x];
+                            assertEquals(palette[RenderAsciiMap.densityLevel(count, maxCount, 255)],
+                                    image.getRGB(x, y) & 0xffffff, "Tile " + zoom + "/" + tx + "/" + ty
+                                            + " pixel " + x + "," + y);
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(expectedTiles, summary.tiles());
+        assertEquals(expectedTiles, summary.written());
+        assertTrue(expectedTiles < 1 + 4 + 16, "Empty tiles must be skipped");
+        assertTrue(Files.exists(tiles.resolve(RenderMapTiles.VIEWER_FILE)));
+        assertTrue(Files.exists(tiles.resolve(RenderMapTiles.INDEX_FILE)));
+    }
+
+    @Test
+    void render_RewritesOnlyChangedTiles() throws IOException {
+        Path csv = writePoints("points.csv", 5_000, 3);
+        Path tiles = tempDir.resolve("tiles");
+        RenderMapTiles.TileSummary first = new RenderMapTiles(tileConfig(csv, TILE, tiles), fixed()).render();
+
+        RenderMapTiles.TileSummary again = new RenderMapTiles(tileConfig(csv, TILE, tiles), fixed()).render();
+        assertEquals(first.tiles(), again.tiles());
+        assertEquals(0, again.written());
+        assertEquals(first.tiles(), again.unchanged());
+
+        // One extra point in an empty north-east tile: that tile is new and its
+        // ancestors change, everything else keeps its pixels.
+        Files.writeString(csv, "9999,NE,57.9,1.9\n", StandardOpenOption.APPEND);
+        RenderMapTiles.TileSummary added = new RenderMapTiles(tileConfig(csv, TILE, tiles), fixed()).render();
+        assertTrue(Files.exists(tiles.resolve("2/3/0.png")));
+        assertTrue(added.written() >= 2 && added.written() <= MAX_ZOOM + 2, "Written " + added.written());
+        assertEquals(added.tiles() - added.written(), added.unchanged());
+
+        Path fewer = writePoints("fewer.csv", 50, 3);
+        RenderMapTiles.TileSummary removed = new RenderMapTiles(tileConfig(fewer, TILE, tiles), fixed()).render();
+        assertTrue(removed.removed() > 0);
+        assertFalse(Files.exists(tiles.resolve("2/3/0.png")));
+    }
+
+    @Test
+    void render_CachedPointsMatchScan() throws IOException {
+        Path csv = writePoints("points.csv", 2_000, 9);
+        Config config = tileConfig(csv, TILE, tempDir.resolve("scan"));
+        RenderMapTiles.TileSummary scanned = new RenderMapTiles(config, fixed()).render();
+
+        Config cachedConfig = tileConfig(csv, TILE, tempDir.resolve("cached"));
+        RenderMapTiles.TileSummary cached = new RenderMapTiles(cachedConfig, fixed())
+                .render(PointCache.load(cachedConfig));
+        assertEquals(scanned.tiles(), cached.tiles());
+        assertEquals(Files.readString(tempDir.resolve("scan").resolve(RenderMapTiles.INDEX_FILE)),
+                Files.readString(tempDir.resolve("cached").resolve(RenderMapTiles.INDEX_FILE)));
+    }
+
+    @Test
+    void interleave_RoundTrips() {
+        int[][] cells = { { 0, 0 }, { 1, 0 }, { 0, 1 }, { 12345, 67890 }, { (1 << 30) - 1, 1 << 29 } };
+        for (int[] cell : cells) {
+            long key = RenderMapTiles.interleave(cell[0], cell[1]);
+            assertEquals(cell[0], RenderMapTiles.compact(key));
+            assertEquals(cell[1], RenderMapTiles.compact(key >>> 1));
+            assertEquals(RenderMapTiles.interleave(cell[0] >> 1, cell[1] >> 1), key >>> 2, "Parent cell");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package co.sedai;
+
+import co.sedai.model.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderRasterMapTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final long[][] grid = {
+            { 0, 1, 2 },
+            { 4, 0, 0 },
+    };
+
+    private Config rasterConfig(Path output, int cellSize, String palette) {
+        return Config.builder("unused.csv").mapWidth(3).mapHeight(2).rasterEnabled(true)
+                .rasterFilePath(output.toString()).rasterCellSize(cellSize).rasterPalette(palette).build();
+    }
+
+    @Test
+    void write_Png_UsesDensityScaleAndBlocks() throws IOException {
+        Path png = tempDir.resolve("map.png");
+        new RenderRasterMap(grid, rasterConfig(png, 3, "heat")).write();
+
+        BufferedImage image = ImageIO.read(png.toFile());
+        assertEquals(9, image.getWidth());
+        assertEquals(6, image.getHeight());
+        int[] palette = RenderRasterMap.palette("heat");
+        for (int y = 0; y < 6; y++) {
+            for (int x = 0; x < 9; x++) {
+                long count = grid[y / 3][x / 3];
+                int expected = palette[RenderAsciiMap.densityLevel(count, 4, 255)];
+                assertEquals(expected, image.getRGB(x, y) & 0xffffff, "Pixel " + x + "," + y);
+            }
+        }
+        assertEquals(0xffffff, image.getRGB(0, 0) & 0xffffff, "Empty cells are white");
+    }
+
+    @Test
+    void write_Pgm_MatchesDensityChar() throws IOException {
+        Path pgm = tempDir.resolve("map.pgm");
+        new RenderRasterMap(grid, rasterConfig(pgm, 1, "gray")).write();
+
+        byte[] bytes = Files.readAllBytes(pgm);
+        byte[] header = "P5\n3 2\n255\n".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(header, Arrays.copyOf(bytes, header.length));
+        assertEquals(header.length + 6, bytes.length);
+        int[] palette = RenderRasterMap.palette("gray");
+        // Same levels as the text map with 255 characters: 1 of 4 -> 64, 2 -> 128, 4 -> 255.
+        assertEquals(palette[64] & 0xff, bytes[header.length + 1] & 0xff);
+        assertEquals(palette[128] & 0xff, bytes[header.length + 2] & 0xff);
+        assertEquals(0, bytes[header.length + 3] & 0xff);
+        assertEquals(255, bytes[header.length] & 0xff);
+    }
+}
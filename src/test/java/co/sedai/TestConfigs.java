@@ -0,0 +1,26 @@
+package co.sedai;
+
+import java.nio.file.Path;
+
+import co.sedai.model.Config;
+
+/**
+ * Shared test configuration: the layout of the generated postcode-style CSV
+ * files ({@code id,postcode,latitude,longitude} with a header line). Tests set
+ * only the settings they exercise on top of it.
+ */
+public final class TestConfigs {
+
+    private TestConfigs() {
+    }
+
+    public static Config.Builder postcodes(Path csv) {
+        return postcodes(csv.toString());
+    }
+
+    public static Config.Builder postcodes(String csv) {
+        return Config.builder(csv).mapWidth(40).mapHeight(20).inputDelimiter(",").inputSkipHeaderLines(1)
+                .renderDensityChars(" .:o".toCharArray()).latColumn(2).longColumn(3).htmlFilePath(null)
+                .errorCount(10);
+    }
+}
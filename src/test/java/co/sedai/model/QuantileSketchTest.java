@@ -0,0 +1,99 @@
+package co.sedai.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    @Test
+    void quantile_WithinRankError() {
+        // 0..999_999 shuffled, so the value at rank r is r * 1_000_000.
+        int n = 1_000_000;
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++)
+            values[i] = i;
+        Random random = new Random(5);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+        QuantileSketch sketch = new QuantileSketch();
+        for (int value : values)
+            sketch.update(value);
+
+        assertEquals(n, sketch.count());
+        for (double rank : new double[] { 0.001, 0.1, 0.5, 0.9, 0.999 })
+            assertEquals(rank * n, sketch.quantile(rank), 0.002 * n, "Rank " + rank);
+    }
+
+    @Test
+    void merge_MatchesSingleSketch() {
+        QuantileSketch merged = new QuantileSketch();
+        for (int part = 0; part < 4; part++) {
+            QuantileSketch partial = new QuantileSketch(200, part);
+            for (int i = part; i < 400_000; i += 4)
+                partial.update(i);
+            merged.merge(partial);
+        }
+        assertEquals(400_000, merged.count());
+        assertEquals(200_000, merged.quantile(0.5), 8_000);
+        assertEquals(399_600, merged.quantile(0.999), 8_000);
+    }
+
+    @Test
+    void writeTo_RoundTrips() throws IOException {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 50_000; i++)
+            sketch.update(i * 0.5);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        QuantileSketch copy = QuantileSketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(sketch.count(), copy.count());
+        assertEquals(sketch.quantile(0.25), copy.quantile(0.25));
+        assertTrue(bytes.size() < 256 * 1024, "Sketch should stay small: " + bytes.size());
+    }
+
+    @Test
+    void sketches_DrawIndependentCoinFlips() throws IOException {
+        // Identical input compacted many times: equal seeds would retain identical items.
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        for (int i = 0; i < 200_000; i++) {
+            first.update(i);
+            second.update(i);
+        }
+        assertFalse(Arrays.equals(bytes(first), bytes(second)));
+
+        byte[] written = bytes(first);
+        QuantileSketch copyA = QuantileSketch.readFrom(new DataInputStream(new ByteArrayInputStream(written)));
+        QuantileSketch copyB = QuantileSketch.readFrom(new DataInputStream(new ByteArrayInputStream(written)));
+        for (int i = 0; i < 200_000; i++) {
+            copyA.update(i);
+            copyB.update(i);
+        }
+        assertFalse(Arrays.equals(bytes(copyA), bytes(copyB)), "Deserialized sketches need their own seed");
+    }
+
+    private static byte[] bytes(QuantileSketch sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void quantile_EmptyIsNaN() {
+        assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+    }
+}
@@ -0,0 +1,135 @@
+package co.sedai.shard;
+
+import co.sedai.GetDatBounds;
+import co.sedai.GridDensityPopulator;
+import co.sedai.TestConfigs;
+import co.sedai.model.Bounds;
+import co.sedai.model.Config;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardCoordinatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<ShardWorker> workers = new ArrayList<>();
+    private Config config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // ~3 MB so the file is split into several ranges, with a header line.
+        Path csv = tempDir.resolve("points.csv");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("id,postcode,latitude,longitude\n");
+            for (int i = 0; i < 80_000; i++) {
+                double lat = 49.9 + random.nextDouble() * 10.8;
+                double lon = -8.1 + random.nextDouble() * 9.9;
+                writer.write(String.format(Locale.ROOT, "%d,AB%d %dCD,%.6f,%.6f\n", i, i % 99, i % 9, lat, lon));
+            }
+        }
+        config = shardConfig(csv.toString(), 0, List.of(csv.toString()));
+    }
+
+    private static Config shardConfig(String filePath, int localWorkers, List<String> inputFiles) {
+        return TestConfigs.postcodes(filePath).shardEnabled(true).shardLocalWorkers(localWorkers)
+                .shardInputFiles(inputFiles).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (ShardWorker worker : workers)
+            worker.close();
+    }
+
+    private InetSocketAddress startInProcessWorker() throws IOException {
+        return startInProcessWorker(tempDir);
+    }
+
+    private InetSocketAddress startInProcessWorker(Path inputRoot) throws IOException {
+        ShardWorker worker = new ShardWorker(InetAddress.getLoopbackAddress(), 0, inputRoot);
+        workers.add(worker);
+        Thread thread = new Thread(worker::serve);
+        thread.setDaemon(true);
+        thread.start();
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.port());
+    }
+
+    @Test
+    void planRanges_CoversFileContiguously() throws IOException {
+        long length = Files.size(Path.of(config.filePath()));
+        List<ShardCoordinator.Range> ranges = ShardCoordinator.planRanges(config.shardInputFiles(), 3);
+
+        assertTrue(ranges.size() >= 2, "A 3 MB file should be split into several ranges");
+        assertEquals(0, ranges.get(0).start());
+        for (int i = 1; i < ranges.size(); i++)
+            assertEquals(ranges.get(i - 1).end(), ranges.get(i).start(), "Ranges must be adjacent");
+        assertEquals(length, ranges.get(ranges.size() - 1).end());
+    }
+
+    @Test
+    void shardedRun_MatchesSingleProcess() throws IOException {
+        Bounds expectedBounds = new GetDatBounds().findDataBounds(config);
+        long[][] expectedGrid = new GridDensityPopulator(config, expectedBounds).populate();
+
+        ShardCoordinator coordinator = new ShardCoordinator(config,
+                List.of(startInProcessWorker(), startInProcessWorker(), startInProcessWorker()));
+        Bounds bounds = coordinator.findBounds();
+        long[][] grid = coordinator.populate(bounds);
+
+        assertEquals(80_000, bounds.pointCount(), "Every line must be counted exactly once across ranges");
+        assertEquals(expectedBounds.minLat(), bounds.minLat());
+        assertEquals(expectedBounds.maxLat(), bounds.maxLat());
+        assertEquals(expectedBounds.minLon(), bounds.minLon());
+        assertEquals(expectedBounds.maxLon(), bounds.maxLon());
+        for (int y = 0; y < expectedGrid.length; y++)
+            assertArrayEquals(expectedGrid[y], grid[y], "Row " + y);
+    }
+
+    @Test
+    void shardedRun_WithLocalWorkerProcesses() throws IOException {
+        Config localConfig = shardConfig(config.filePath(), 2, config.shardInputFiles());
+        long[][] expectedGrid = new GridDensityPopulator(localConfig,
+                new GetDatBounds().findDataBounds(localConfig)).populate();
+
+        try (ShardCoordinator coordinator = ShardCoordinator.start(localConfig)) {
+            long[][] grid = coordinator.populate(coordinator.findBounds());
+            for (int y = 0; y < expectedGrid.length; y++)
+                assertArrayEquals(expectedGrid[y], grid[y], "Row " + y);
+        }
+    }
+
+    @Test
+    void workerError_IsReportedToCoordinator() {
+        Config missing = shardConfig(config.filePath(), 0, List.of(tempDir.resolve("missing.csv").toString()));
+        assertThrows(IOException.class, () -> new ShardCoordinator(missing,
+                List.of(startInProcessWorker())).findBounds());
+    }
+
+    @Test
+    void worker_RefusesFilesOutsideInputRoot() throws IOException {
+        Path inputs = Files.createDirectory(tempDir.resolve("inputs"));
+        IOException thrown = assertThrows(IOException.class, () -> new ShardCoordinator(config,
+                List.of(startInProcessWorker(inputs))).findBounds());
+        assertTrue(thrown.getMessage().contains("outside the worker's input root"), thrown.getMessage());
+
+        assertEquals(tempDir.toRealPath(), ShardCoordinator.inputRoot(List.of(config.filePath(),
+                Files.createFile(inputs.resolve("more.csv")).toString())));
+    }
+}